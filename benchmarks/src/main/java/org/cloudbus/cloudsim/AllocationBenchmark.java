@@ -0,0 +1,48 @@
+package org.cloudbus.cloudsim;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placement cost of {@link AutoScalingVmAllocationPolicy} on a datacenter that already runs
+ * {@code vmsPerHost} VMs on each of {@code hosts} hosts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsim.TRACE_LEVEL=0")
+public class AllocationBenchmark {
+    @Param({"10", "1000", "50000"})
+    public int hosts;
+
+    @Param({"1", "4"})
+    public int vmsPerHost;
+
+    private AutoScalingVmAllocationPolicy policy;
+    private Vm probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Log.disable();
+        policy = new AutoScalingVmAllocationPolicy(BenchmarkFixtures.hosts(hosts));
+        BenchmarkFixtures.populate(policy, hosts, vmsPerHost);
+        probe = BenchmarkFixtures.vm(hosts * vmsPerHost);
+    }
+
+    /**
+     * Places one more VM and releases it again, so every invocation sees the same load.
+     */
+    @Benchmark
+    public boolean allocateHostForVm() {
+        boolean placed = BenchmarkFixtures.place(policy, probe);
+        policy.deallocateHostForVm(probe);
+        return placed;
+    }
+
+    @Benchmark
+    public Host findHostForVm() {
+        return policy.findHostForVm(probe);
+    }
+}
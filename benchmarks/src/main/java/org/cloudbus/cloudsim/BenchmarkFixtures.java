@@ -0,0 +1,86 @@
+package org.cloudbus.cloudsim;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds hosts and VMs shaped like the ones in {@link Main}, without a running simulation,
+ * and lets benchmarks move CloudSim's clock.
+ */
+final class BenchmarkFixtures {
+    private static final Field CLOCK;
+
+    static {
+        try {
+            CLOCK = CloudSim.class.getDeclaredField("clock");
+            CLOCK.setAccessible(true);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BenchmarkFixtures() {
+    }
+
+    static List<Host> hosts(int count) {
+        List<Host> hosts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<Pe> peList = new ArrayList<>();
+            for (int j = 0; j < Constants.HOST_PES; j++) {
+                peList.add(new Pe(j, new PeProvisionerSimple(Constants.HOST_MIPS)));
+            }
+            hosts.add(new Host(
+                i,
+                new RamProvisionerSimple(Constants.HOST_RAM),
+                new BwProvisionerSimple(Constants.HOST_BW),
+                Constants.HOST_STORAGE,
+                peList,
+                new VmSchedulerTimeShared(peList)
+            ));
+        }
+        return hosts;
+    }
+
+    static Vm vm(int id) {
+        return new Vm(id, 0, Constants.VM_MIPS, Constants.VM_PES, Constants.VM_RAM, Constants.VM_BW,
+            Constants.VM_SIZE, "Xen", new CloudletSchedulerTimeShared());
+    }
+
+    /**
+     * Places a VM through the policy and finishes its instantiation, as the datacenter does.
+     */
+    static boolean place(AutoScalingVmAllocationPolicy policy, Vm vm) {
+        vm.setBeingInstantiated(true);
+        boolean placed = policy.allocateHostForVm(vm);
+        vm.setBeingInstantiated(false);
+        return placed;
+    }
+
+    /**
+     * Places {@code vmsPerHost} VMs on each of {@code hostCount} hosts through the policy.
+     */
+    static List<Vm> populate(AutoScalingVmAllocationPolicy policy, int hostCount, int vmsPerHost) {
+        List<Vm> vms = new ArrayList<>(hostCount * vmsPerHost);
+        for (int id = 0; id < hostCount * vmsPerHost; id++) {
+            Vm vm = vm(id);
+            if (!place(policy, vm)) {
+                throw new IllegalStateException("Hosts are full after " + id + " VMs");
+            }
+            vms.add(vm);
+        }
+        return vms;
+    }
+
+    static void setClock(double time) {
+        try {
+            CLOCK.setDouble(null, time);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.cloudbus.cloudsim;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the batch workload with {@link CloudletGenerator#createCloudlets}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CloudletGeneratorBenchmark {
+    @Param({"1000", "100000"})
+    public int count;
+
+    @Benchmark
+    public List<Cloudlet> createCloudlets() {
+        return CloudletGenerator.createCloudlets(0, count);
+    }
+}
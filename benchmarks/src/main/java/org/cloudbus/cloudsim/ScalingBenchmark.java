@@ -0,0 +1,77 @@
+package org.cloudbus.cloudsim;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One monitoring tick through {@link AutoScalingVmAllocationPolicy#updateVmUtilization(double[])},
+ * with {@code scaleUpRate} of the VMs above the scaling threshold. VMs scaled by an invocation are
+ * put back to their original shape and host load before the next one, outside the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsim.TRACE_LEVEL=0")
+public class ScalingBenchmark {
+    @Param({"10", "1000", "50000"})
+    public int hosts;
+
+    @Param({"1", "4"})
+    public int vmsPerHost;
+
+    @Param({"0", "0.01", "0.1"})
+    public double scaleUpRate;
+
+    private AutoScalingVmAllocationPolicy policy;
+    private List<Vm> vms;
+    private double[] utilization;
+    private final List<Vm> scaled = new ArrayList<>();
+    private double clock;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Log.disable();
+        policy = new AutoScalingVmAllocationPolicy(BenchmarkFixtures.hosts(hosts));
+        vms = BenchmarkFixtures.populate(policy, hosts, vmsPerHost);
+        utilization = new double[vms.size()];
+        policy.setScalingEventListener(event -> scaled.add(vms.get(event.vmId)));
+    }
+
+    /**
+     * Restores the VMs scaled by the previous tick and marks a rotating slice of VMs as hot.
+     */
+    @Setup(Level.Invocation)
+    public void prepareTick() {
+        for (Vm vm : scaled) {
+            policy.deallocateHostForVm(vm);
+            vm.setNumberOfPes(Constants.VM_PES);
+            vm.setRam(Constants.VM_RAM);
+            vm.setBw(Constants.VM_BW);
+            BenchmarkFixtures.place(policy, vm);
+            policy.getVmScalingEvents().get(vm.getId()).clear();
+        }
+        scaled.clear();
+
+        // Past the cooldown of every VM, so each hot VM is a scale-up candidate
+        clock += Constants.SCALING_COOLDOWN;
+        BenchmarkFixtures.setClock(clock);
+
+        Arrays.fill(utilization, Constants.AUTO_SCALING_THRESHOLD / 2);
+        int hot = (int) Math.round(vms.size() * scaleUpRate);
+        for (int i = 0; i < hot; i++) {
+            utilization[(tick * hot + i) % vms.size()] = 1.0;
+        }
+        tick++;
+    }
+
+    @Benchmark
+    public void updateVmUtilization() {
+        policy.updateVmUtilization(utilization);
+    }
+}
@@ -0,0 +1,60 @@
+package org.cloudbus.cloudsim;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole runs of {@link Main} under a Poisson workload sized to the datacenter. Besides runs per
+ * second, JMH reports the simulated events per wall-clock second as the {@code events} counter.
+ *
+ * Simulation parameters are read once per JVM by {@link Constants}, so they are set as system
+ * properties before the first run; JMH forks a fresh JVM for every parameter combination.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SimulationBenchmark {
+    @Param({"10", "100", "1000"})
+    public int hosts;
+
+    @Param({"1", "4"})
+    public int vmsPerHost;
+
+    /** Cloudlet arrivals per second for each VM */
+    @Param({"0.2"})
+    public double arrivalRatePerVm;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EventCounter {
+        public long events;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            events = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int vms = hosts * vmsPerHost;
+        System.setProperty("sim.HOSTS", Integer.toString(hosts));
+        System.setProperty("sim.VMS", Integer.toString(vms));
+        System.setProperty("sim.ARRIVAL_PROCESS", "poisson");
+        System.setProperty("sim.ARRIVAL_RATE", Double.toString(arrivalRatePerVm * vms));
+        System.setProperty("sim.TRACE_LEVEL", "0");
+        System.setProperty("sim.RESULTS_DIR", "target/bench-results");
+        Log.disable();
+    }
+
+    @Benchmark
+    public long run(EventCounter counter) throws Exception {
+        Main.run(new String[0]);
+        long events = Main.getSimulatedEvents();
+        counter.events += events;
+        return events;
+    }
+}
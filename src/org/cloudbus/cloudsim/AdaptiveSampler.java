@@ -0,0 +1,199 @@
+package org.cloudbus.cloudsim;
+
+import java.util.Arrays;
+
+/**
+ * Chooses when each VM's CPU utilization is sampled next in the adaptive sampling mode.
+ * A VM is checked again when it could first scale: not before its cooldown ends, never once
+ * it is at {@link Constants#MAX_VM_PES} with nothing to shrink, and not while it is idle, as
+ * only a new cloudlet can raise its load; an idle VM that can shrink is checked when it is due
+ * to (see {@link #checkAt}). Otherwise the check is due when the utilization trend would reach the
+ * scaling threshold, or after a sampling period that doubles, up to
+ * {@link Constants#MAX_SAMPLING_INTERVAL}, for as long as the load stays stable. A VM left above
+ * the threshold for want of host capacity backs off the same way.
+ *
+ * Check times fall on multiples of {@link Constants#SCHEDULING_INTERVAL}, the ticks of the
+ * fixed sampling mode, so scaling decisions happen at the same times in both modes. VMs with a
+ * finite check time are kept in a binary min-heap on it, so the earliest check is found without
+ * scanning every VM ever created.
+ */
+public class AdaptiveSampler {
+    private static final double EPSILON = 1e-9;
+
+    private double[] nextCheck = new double[0];       // Time of each VM's next check
+    private double[] interval = new double[0];        // Current sampling period of each VM
+    private double[] lastUtilization = new double[0];
+    private double[] lastSampleTime = new double[0];  // NaN before the first sample
+
+    // Min-heap of the VMs with a finite check time, and each VM's slot in it (-1 if absent)
+    private int[] heap = new int[0];
+    private int[] heapPosition = new int[0];
+    private int heapSize;
+
+    /**
+     * Whether the VM is due for a check at {@code now}.
+     */
+    public boolean isDue(int vmId, double now) {
+        ensureCapacity(vmId);
+        return nextCheck[vmId] <= now + EPSILON;
+    }
+
+    /**
+     * Records a sample and schedules the VM's next check.
+     *
+     * @param nextScalingTime earliest time the policy would scale the VM, infinite if never
+     * @param idle whether the VM has no cloudlets to run
+     */
+    public void recordSample(int vmId, double now, double utilization, double nextScalingTime, boolean idle) {
+        ensureCapacity(vmId);
+        double previous = lastUtilization[vmId];
+        double previousTime = lastSampleTime[vmId];
+        lastUtilization[vmId] = utilization;
+        lastSampleTime[vmId] = now;
+
+        if (idle || Double.isInfinite(nextScalingTime)) {
+            interval[vmId] = Constants.SCHEDULING_INTERVAL;
+            setNextCheck(vmId, Double.POSITIVE_INFINITY);
+            return;
+        }
+
+        boolean stable = !Double.isNaN(previousTime) && Math.abs(utilization - previous) <= Constants.SAMPLING_TOLERANCE;
+        interval[vmId] = stable
+            ? Math.min(interval[vmId] * 2, Constants.MAX_SAMPLING_INTERVAL)
+            : Constants.SCHEDULING_INTERVAL;
+
+        // A VM still hot after the policy's pass could not scale for lack of host capacity
+        // and backs off like a stable one
+        double next = now + interval[vmId];
+        double rate = Double.isNaN(previousTime) ? 0 : (utilization - previous) / (now - previousTime);
+        if (rate > 0 && utilization <= Constants.AUTO_SCALING_THRESHOLD) {
+            next = Math.min(next, now + (Constants.AUTO_SCALING_THRESHOLD - utilization) / rate);
+        }
+        setNextCheck(vmId, align(Math.max(Math.max(next, nextScalingTime), now + Constants.SCHEDULING_INTERVAL)));
+    }
+
+    /**
+     * Brings the VM's next check forward to the next tick after its load changed, e.g. when a
+     * cloudlet is dispatched to it or returns from it.
+     *
+     * @return the time of the VM's next check
+     */
+    public double wake(int vmId, double now, double nextScalingTime) {
+        ensureCapacity(vmId);
+        interval[vmId] = Constants.SCHEDULING_INTERVAL;
+        if (!Double.isInfinite(nextScalingTime)) {
+            checkAt(vmId, Math.max(now + Constants.SCHEDULING_INTERVAL, nextScalingTime));
+        }
+        return nextCheck[vmId];
+    }
+
+    /**
+     * Makes the VM due no later than the first tick at or after {@code time}.
+     */
+    public void checkAt(int vmId, double time) {
+        ensureCapacity(vmId);
+        setNextCheck(vmId, Math.min(nextCheck[vmId], align(time)));
+    }
+
+    /**
+     * Stops checking a VM, e.g. a retired replica.
+     */
+    public void forget(int vmId) {
+        ensureCapacity(vmId);
+        setNextCheck(vmId, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Earliest check of any VM, infinite if no VM needs one.
+     */
+    public double nextCheckTime() {
+        return heapSize > 0 ? nextCheck[heap[0]] : Double.POSITIVE_INFINITY;
+    }
+
+    private void setNextCheck(int vmId, double time) {
+        double old = nextCheck[vmId];
+        nextCheck[vmId] = time;
+        int position = heapPosition[vmId];
+        if (Double.isInfinite(time)) {
+            if (position >= 0) {
+                removeAt(position);
+            }
+        } else if (position < 0) {
+            heap[heapSize] = vmId;
+            heapPosition[vmId] = heapSize;
+            siftUp(heapSize++);
+        } else if (time < old) {
+            siftUp(position);
+        } else {
+            siftDown(position);
+        }
+    }
+
+    private void removeAt(int position) {
+        int vmId = heap[position];
+        int last = heap[--heapSize];
+        heapPosition[vmId] = -1;
+        if (position == heapSize) return;
+
+        heap[position] = last;
+        heapPosition[last] = position;
+        siftUp(position);
+        siftDown(heapPosition[last]);
+    }
+
+    private void siftUp(int position) {
+        int vmId = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (nextCheck[heap[parent]] <= nextCheck[vmId]) break;
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(vmId, position);
+    }
+
+    private void siftDown(int position) {
+        int vmId = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && nextCheck[heap[child + 1]] < nextCheck[heap[child]]) {
+                child++;
+            }
+            if (nextCheck[heap[child]] >= nextCheck[vmId]) break;
+            place(heap[child], position);
+            position = child;
+        }
+        place(vmId, position);
+    }
+
+    private void place(int vmId, int position) {
+        heap[position] = vmId;
+        heapPosition[vmId] = position;
+    }
+
+    /**
+     * Rounds a time up to the next multiple of the scheduling interval.
+     */
+    private static double align(double time) {
+        if (Double.isInfinite(time)) return time;
+        return Math.ceil(time / Constants.SCHEDULING_INTERVAL - EPSILON) * Constants.SCHEDULING_INTERVAL;
+    }
+
+    private void ensureCapacity(int vmId) {
+        if (vmId < nextCheck.length) return;
+        int size = Math.max(vmId + 1, nextCheck.length * 2);
+        int old = nextCheck.length;
+        nextCheck = Arrays.copyOf(nextCheck, size);
+        interval = Arrays.copyOf(interval, size);
+        lastUtilization = Arrays.copyOf(lastUtilization, size);
+        lastSampleTime = Arrays.copyOf(lastSampleTime, size);
+        heap = Arrays.copyOf(heap, size);
+        heapPosition = Arrays.copyOf(heapPosition, size);
+        // VMs are not checked until they are first woken or scheduled
+        Arrays.fill(nextCheck, old, size, Double.POSITIVE_INFINITY);
+        Arrays.fill(interval, old, size, Constants.SCHEDULING_INTERVAL);
+        Arrays.fill(lastSampleTime, old, size, Double.NaN);
+        Arrays.fill(heapPosition, old, size, -1);
+    }
+}
@@ -0,0 +1,134 @@
+package org.cloudbus.cloudsim;
+
+import java.util.SplittableRandom;
+
+/**
+ * Stochastic process that generates cloudlet arrival times for the open-loop workload.
+ */
+public interface ArrivalProcess {
+
+    /**
+     * Returns the first arrival strictly after {@code now}.
+     */
+    double nextArrival(double now, SplittableRandom rand);
+
+    String getName();
+
+    /**
+     * Creates the process named in {@link Constants#ARRIVAL_PROCESS}: "poisson", "mmpp" or "diurnal".
+     */
+    static ArrivalProcess create(String name) {
+        switch (name.toLowerCase()) {
+            case "poisson":
+                return new Poisson(Constants.ARRIVAL_RATE);
+            case "mmpp":
+                return new Mmpp(Constants.ARRIVAL_RATE, Constants.MMPP_BURST_RATE,
+                    Constants.MMPP_MEAN_CALM_TIME, Constants.MMPP_MEAN_BURST_TIME);
+            case "diurnal":
+                return new Diurnal(Constants.ARRIVAL_RATE, Constants.DIURNAL_AMPLITUDE, Constants.DIURNAL_PERIOD);
+            default:
+                throw new IllegalArgumentException("Unknown arrival process: " + name);
+        }
+    }
+
+    static double exponential(double rate, SplittableRandom rand) {
+        return -Math.log(1.0 - rand.nextDouble()) / rate;
+    }
+
+    /**
+     * Homogeneous Poisson arrivals with a constant rate.
+     */
+    class Poisson implements ArrivalProcess {
+        private final double rate;
+
+        public Poisson(double rate) {
+            this.rate = rate;
+        }
+
+        @Override
+        public double nextArrival(double now, SplittableRandom rand) {
+            return now + exponential(rate, rand);
+        }
+
+        @Override
+        public String getName() {
+            return "poisson";
+        }
+    }
+
+    /**
+     * Two-state Markov-modulated Poisson process: a calm state and a burst state, each held
+     * for an exponentially distributed time, with its own arrival rate.
+     */
+    class Mmpp implements ArrivalProcess {
+        private final double[] rates;
+        private final double[] meanHoldTimes;
+        private int state = 0;
+        private double stateEnd = Double.NaN;
+
+        public Mmpp(double calmRate, double burstRate, double meanCalmTime, double meanBurstTime) {
+            this.rates = new double[] { calmRate, burstRate };
+            this.meanHoldTimes = new double[] { meanCalmTime, meanBurstTime };
+        }
+
+        @Override
+        public double nextArrival(double now, SplittableRandom rand) {
+            if (Double.isNaN(stateEnd)) {
+                stateEnd = now + exponential(1.0 / meanHoldTimes[state], rand);
+            }
+            double time = now;
+            while (true) {
+                // Memorylessness lets the candidate restart at each state switch
+                double candidate = time + exponential(rates[state], rand);
+                if (candidate <= stateEnd) {
+                    return candidate;
+                }
+                time = stateEnd;
+                state = 1 - state;
+                stateEnd = time + exponential(1.0 / meanHoldTimes[state], rand);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "mmpp";
+        }
+    }
+
+    /**
+     * Non-homogeneous Poisson process whose rate follows a daily cycle,
+     * {@code rate * (1 + amplitude * sin(2 pi t / period))}, sampled by thinning.
+     */
+    class Diurnal implements ArrivalProcess {
+        private final double rate;
+        private final double amplitude;
+        private final double period;
+
+        public Diurnal(double rate, double amplitude, double period) {
+            this.rate = rate;
+            this.amplitude = Math.min(1.0, Math.max(0.0, amplitude));
+            this.period = period;
+        }
+
+        @Override
+        public double nextArrival(double now, SplittableRandom rand) {
+            double peakRate = rate * (1 + amplitude);
+            double time = now;
+            while (true) {
+                time += exponential(peakRate, rand);
+                if (rand.nextDouble() * peakRate <= rateAt(time)) {
+                    return time;
+                }
+            }
+        }
+
+        private double rateAt(double time) {
+            return rate * (1 + amplitude * Math.sin(2 * Math.PI * time / period));
+        }
+
+        @Override
+        public String getName() {
+            return "diurnal";
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.cloudbus.cloudsim;
+
+import java.util.SplittableRandom;
+
+/**
+ * Open-loop synthetic workload: cloudlets shaped like the ones from
+ * {@link CloudletGenerator#createCloudlets} arrive at the times drawn from an
+ * {@link ArrivalProcess}, independent of how fast they are served. Arrival times come from the
+ * {@link RandomStreams#ARRIVALS} stream and each cloudlet from its own seed, so changing the
+ * arrival process does not change the cloudlets.
+ */
+public class ArrivalProcessWorkload implements WorkloadSource {
+    private final ArrivalProcess process;
+    private final int userId;
+    private final SplittableRandom rand = RandomStreams.create(RandomStreams.ARRIVALS);
+    private int nextId;
+    private double nextArrival;
+
+    public ArrivalProcessWorkload(ArrivalProcess process, int userId, int firstCloudletId) {
+        this.process = process;
+        this.userId = userId;
+        this.nextId = firstCloudletId;
+        this.nextArrival = process.nextArrival(0.0, rand);
+    }
+
+    @Override
+    public double nextArrivalTime() {
+        return nextArrival;
+    }
+
+    @Override
+    public Cloudlet next() {
+        Cloudlet cloudlet = CloudletGenerator.createCloudlet(nextId++, userId);
+        nextArrival = process.nextArrival(nextArrival, rand);
+        return cloudlet;
+    }
+
+    public String getProcessName() {
+        return process.getName();
+    }
+
+    @Override
+    public void close() {
+    }
+}
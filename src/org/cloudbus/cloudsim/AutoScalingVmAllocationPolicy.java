@@ -2,88 +2,169 @@ package org.cloudbus.cloudsim;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class AutoScalingVmAllocationPolicy extends VmAllocationPolicy {
+    // Entry points timed by the profiler
+    private static final int PROFILE_ALLOCATE = SimulationProfiler.probe("allocateHostForVm");
+    private static final int PROFILE_DEALLOCATE = SimulationProfiler.probe("deallocateHostForVm");
+    private static final int PROFILE_UPDATE = SimulationProfiler.probe("updateVmUtilization");
+    private static final int PROFILE_SCALE_UP = SimulationProfiler.probe("scaleVm");
+    private static final int PROFILE_CONSOLIDATE = SimulationProfiler.probe("optimizeAllocation");
+    private static final int PROFILE_COMPLETE_MIGRATION = SimulationProfiler.probe("completeMigration");
+    
     private Map<String, Host> vmTable;
     private List<Host> hostList;
-    private Map<Vm, Double> vmUtilization;
-    private Map<Integer, Integer> vmScalingHistory;
+    private HostCapacityIndex capacityIndex;
+    private VmStateStore vmState; // Utilization, original PEs, scaling count and last scaling time per VM id
     private Map<Integer, List<ScalingEvent>> vmScalingEvents;
-    private Map<Integer, Integer> originalPes;
     private String name;
-    private Map<Integer, Double> lastScalingTime; // Track the last time each VM was scaled
-    private static final double SCALING_COOLDOWN = 5.0; // Cooldown period in simulation time units
+    private VmConsolidator consolidator;
+    private int consolidationRounds;
+    private int consolidationMigrations;
+    private int hostsFreed;
+    private final Set<Integer> consolidating = new HashSet<>(); // VMs in a live consolidation migration
+    private Consumer<ScalingEvent> scalingEventListener;
+    private long[] scaleCandidates = new long[16]; // Reused by the batched update, see updateVmUtilization(double[])
+    private final boolean predictive;               // Constants.SCALING_MODE is "predictive"
+    private final UtilizationForecaster forecaster; // Demand forecast per VM id, fed in both modes
+    private double saturatedVmTime;                 // VM-seconds sampled at 100% CPU
+    private int predictiveScaleUps;                 // Scale-ups made before the threshold was crossed
+    private double avoidedSaturationTime;           // Summed lead of those scale-ups over the forecast crossing
+    private int scaleDowns;
+    private final ReplicaRegistry replicas = new ReplicaRegistry(); // Services and their replica VMs
+    private final MigrationCostModel migrations;     // Null when migrations are instant
+    private Consumer<MigrationCostModel.Migration> migrationListener;
+    private final boolean scaleRam;                 // RAM follows its own utilization rather than the PEs
+    private final boolean scaleBw;                  // Same for BW
     
     public static class ScalingEvent {
         public double time;
         public int vmId;
+        public String direction;              // "up" or "down", "out" or "in" when a replica is added or retired
         public int oldPes;
         public int newPes;
         public int oldHostId;
         public int newHostId;
         public double cpuUtilization;
+        public double forecastUtilization;    // Peak forecast over the horizon, relative to oldPes
+        public double avoidedSaturationTime;  // Time until the forecast crossed the threshold, 0 if it already had
+        public String resource = "cpu";       // Resources whose change triggered or came with the event, e.g. "cpu+ram"
+        public int oldRam;
+        public int newRam;
+        public long oldBw;
+        public long newBw;
         
         public ScalingEvent(double time, int vmId, int oldPes, int newPes, int oldHostId, int newHostId, double cpuUtilization) {
+            this(time, vmId, oldPes, newPes, oldHostId, newHostId, cpuUtilization, cpuUtilization, 0);
+        }
+        
+        public ScalingEvent(double time, int vmId, int oldPes, int newPes, int oldHostId, int newHostId,
+                            double cpuUtilization, double forecastUtilization, double avoidedSaturationTime) {
             this.time = time;
             this.vmId = vmId;
+            this.direction = newPes >= oldPes ? "up" : "down";
             this.oldPes = oldPes;
             this.newPes = newPes;
             this.oldHostId = oldHostId;
             this.newHostId = newHostId;
             this.cpuUtilization = cpuUtilization;
+            this.forecastUtilization = forecastUtilization;
+            this.avoidedSaturationTime = avoidedSaturationTime;
         }
     }
 
     public AutoScalingVmAllocationPolicy(List<? extends Host> hostList) {
+        this(hostList, false);
+    }
+    
+    /**
+     * @param packing whether host searches prefer the fullest active host rather than the least
+     *                utilized one, see {@link HostCapacityIndex}
+     */
+    protected AutoScalingVmAllocationPolicy(List<? extends Host> hostList, boolean packing) {
         super(hostList);
         this.hostList = new ArrayList<>(hostList);
+        this.capacityIndex = new HostCapacityIndex(hostList, packing);
         this.vmTable = new HashMap<>();
-        this.vmUtilization = new HashMap<>();
-        this.vmScalingHistory = new HashMap<>();
+        this.vmState = new VmStateStore();
         this.vmScalingEvents = new HashMap<>();
-        this.originalPes = new HashMap<>();
-        this.lastScalingTime = new HashMap<>();
+        this.consolidator = new VmConsolidator(
+            Constants.MAX_MIGRATIONS_PER_ROUND,
+            Constants.CONSOLIDATION_UTILIZATION_CEILING,
+            Constants.CONSOLIDATION_PARALLEL_THRESHOLD
+        );
+        if (Constants.SCALE_DOWN_THRESHOLD >= Constants.AUTO_SCALING_THRESHOLD) {
+            throw new IllegalArgumentException("SCALE_DOWN_THRESHOLD must be below AUTO_SCALING_THRESHOLD");
+        }
+        if (Constants.RAM_SCALING_THRESHOLD > 0 && Constants.RAM_SCALE_DOWN_THRESHOLD >= Constants.RAM_SCALING_THRESHOLD) {
+            throw new IllegalArgumentException("RAM_SCALE_DOWN_THRESHOLD must be below RAM_SCALING_THRESHOLD");
+        }
+        if (Constants.BW_SCALING_THRESHOLD > 0 && Constants.BW_SCALE_DOWN_THRESHOLD >= Constants.BW_SCALING_THRESHOLD) {
+            throw new IllegalArgumentException("BW_SCALE_DOWN_THRESHOLD must be below BW_SCALING_THRESHOLD");
+        }
+        this.scaleRam = Constants.RAM_SCALING_THRESHOLD > 0;
+        this.scaleBw = Constants.BW_SCALING_THRESHOLD > 0;
+        this.predictive = isPredictive(Constants.SCALING_MODE);
+        this.forecaster = new UtilizationForecaster(
+            Constants.FORECAST_ALPHA,
+            Constants.FORECAST_BETA,
+            Constants.FORECAST_GAMMA,
+            Constants.FORECAST_SEASON_LENGTH,
+            Constants.SCHEDULING_INTERVAL
+        );
+        this.migrations = !Constants.LIVE_MIGRATION ? null : new MigrationCostModel(
+            Constants.MIGRATION_DIRTY_RATE,
+            Constants.MIGRATION_MAX_ROUNDS,
+            Constants.MIGRATION_STOP_COPY_SIZE,
+            Constants.MIGRATION_BANDWIDTH_SHARE,
+            Constants.MIGRATION_SLOWDOWN
+        );
         this.name = "AutoScalingVmAllocationPolicy";
     }
 
+    private static boolean isPredictive(String mode) {
+        if (mode.equalsIgnoreCase("predictive")) return true;
+        if (mode.equalsIgnoreCase("reactive")) return false;
+        throw new IllegalArgumentException("Unknown scaling mode: " + mode);
+    }
+
     public String getName() {
         return this.name;
     }
 
     @Override
     public boolean allocateHostForVm(Vm vm) {
+        long start = SimulationProfiler.start();
         boolean result = false;
         Host suitableHost = findHostForVm(vm);
         
         if (suitableHost != null) {
             result = suitableHost.vmCreate(vm);
+            capacityIndex.update(suitableHost);
             if (result) {
                 vmTable.put(vm.getUid(), suitableHost);
-                vmUtilization.put(vm, 0.0);
-                originalPes.putIfAbsent(vm.getId(), vm.getNumberOfPes());
-                vmScalingHistory.putIfAbsent(vm.getId(), 0);
+                vmState.register(vm);
                 vmScalingEvents.putIfAbsent(vm.getId(), new ArrayList<>());
-                lastScalingTime.putIfAbsent(vm.getId(), 0.0);
                 
-                Log.printLine(CloudSim.clock() + ": " + getName() + ": VM #" + vm.getId() + 
-                    " has been allocated to host #" + suitableHost.getId());
+                EventTracer.allocate(CloudSim.clock(), vm.getId(), suitableHost.getId(), vm.getNumberOfPes());
             }
         }
+        SimulationProfiler.stop(PROFILE_ALLOCATE, start);
         return result;
     }
 
     @Override
     public boolean allocateHostForVm(Vm vm, Host host) {
-        if (host.vmCreate(vm)) {
+        boolean created = host.vmCreate(vm);
+        capacityIndex.update(host);
+        if (created) {
             vmTable.put(vm.getUid(), host);
-            vmUtilization.put(vm, 0.0);
-            originalPes.putIfAbsent(vm.getId(), vm.getNumberOfPes());
-            vmScalingHistory.putIfAbsent(vm.getId(), 0);
+            vmState.register(vm);
             vmScalingEvents.putIfAbsent(vm.getId(), new ArrayList<>());
-            lastScalingTime.putIfAbsent(vm.getId(), 0.0);
             
-            Log.printLine(CloudSim.clock() + ": " + getName() + ": VM #" + vm.getId() + 
-                " has been allocated to host #" + host.getId());
+            EventTracer.allocate(CloudSim.clock(), vm.getId(), host.getId(), vm.getNumberOfPes());
             return true;
         }
         return false;
@@ -91,16 +172,124 @@ public class AutoScalingVmAllocationPolicy extends VmAllocationPolicy {
 
     @Override
     public List<Map<String, Object>> optimizeAllocation(List<? extends Vm> vmList) {
-        return null;
+        long start = SimulationProfiler.start();
+        consolidationRounds++;
+        List<Map<String, Object>> migrations = consolidator.plan(hostList);
+        
+        if (!migrations.isEmpty()) {
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": Consolidation round planned " +
+                migrations.size() + " migrations");
+        }
+        SimulationProfiler.stop(PROFILE_CONSOLIDATE, start);
+        return migrations;
+    }
+
+    /**
+     * Moves a running VM to another host without changing its size. Used to execute the
+     * migrations planned by {@link #optimizeAllocation(List)}; a move that would now push the
+     * target above the consolidation ceiling is dropped.
+     */
+    public boolean migrateVm(Vm vm, Host target) {
+        Host source = getHost(vm);
+        if (source == null || source == target || isMigrating(vm)) return false;
+        
+        if (!consolidator.isWithinCeiling(target, vm)
+                || !moveVm(vm, source, target, vm.getNumberOfPes(), vm.getRam(), vm.getBw(),
+                    vmState.getUtilization(vm.getId()), false)) {
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": Migration of VM #" + vm.getId() +
+                " to host #" + target.getId() + " is no longer possible");
+            return false;
+        }
+        
+        capacityIndex.update(source);
+        capacityIndex.update(target);
+        vmTable.put(vm.getUid(), target);
+        consolidationMigrations++;
+        if (isMigrating(vm)) {
+            // The source holds the VM's old footprint until the migration ends
+            consolidating.add(vm.getId());
+        } else if (!PowerMeteredHost.isInUse(source)) {
+            hostsFreed++;
+        }
+        
+        EventTracer.migrate(CloudSim.clock(), vm.getId(), vm.getNumberOfPes(), source.getId(), target.getId());
+        return true;
+    }
+
+    /**
+     * Moves a VM to another host with the given size: at once, or as a live migration that
+     * ends later when {@link Constants#LIVE_MIGRATION} is set. With {@code weigh} set, a live
+     * migration that does not pay off (see {@link #isWorthMigrating}) is deferred.
+     */
+    private boolean moveVm(Vm vm, Host source, Host target, int pes, int ram, long bw,
+                           double utilization, boolean weigh) {
+        if (migrations == null) {
+            return VmResizer.migrate(source, target, vm, pes, ram, bw);
+        }
+        
+        MigrationCostModel.Migration migration = migrations.plan(vm, source, target, pes, ram, bw, utilization);
+        if (migration == null) return false;
+        if (weigh && !isWorthMigrating(vm, migration, utilization)) {
+            migrations.defer();
+            return false;
+        }
+        if (!migrations.start(migration)) return false;
+        
+        if (migrationListener != null) {
+            migrationListener.accept(migration);
+        }
+        return true;
+    }
+    
+    /**
+     * Whether a scale-up by migration pays off: the PE-seconds the VM gains over
+     * {@link Constants#MIGRATION_PAYBACK_WINDOW} must exceed those its cloudlets lose while it
+     * migrates. Demand is the larger of the sample and the forecast peak, except that a VM at
+     * 100% is taken to need all its new PEs, as the cap hides how far its demand goes.
+     */
+    private boolean isWorthMigrating(Vm vm, MigrationCostModel.Migration migration, double utilization) {
+        int currentPes = vm.getNumberOfPes();
+        double demand = utilization >= 1.0
+            ? migration.getPes()
+            : Math.max(utilization * currentPes, getPeakForecast(vm.getId(), CloudSim.clock()));
+        double gain = (Math.min(demand, migration.getPes()) - currentPes) * Constants.MIGRATION_PAYBACK_WINDOW;
+        return gain > migrations.getDegradation(migration);
+    }
+    
+    /**
+     * Ends a live migration once its transfer time has passed. Called by the datacenter.
+     */
+    public void completeMigration(MigrationCostModel.Migration migration) {
+        long start = SimulationProfiler.start();
+        if (migrations.finish(migration)) {
+            capacityIndex.update(migration.getSource());
+            capacityIndex.update(migration.getTarget());
+            if (consolidating.remove(migration.getVm().getId()) && !PowerMeteredHost.isInUse(migration.getSource())) {
+                hostsFreed++;
+            }
+        }
+        SimulationProfiler.stop(PROFILE_COMPLETE_MIGRATION, start);
+    }
+    
+    public boolean isMigrating(Vm vm) {
+        return migrations != null && migrations.isMigrating(vm.getId());
     }
 
     @Override
     public void deallocateHostForVm(Vm vm) {
+        long start = SimulationProfiler.start();
         Host host = vmTable.remove(vm.getUid());
-        vmUtilization.remove(vm);
+        vmState.release(vm);
+        MigrationCostModel.Migration migration = migrations != null ? migrations.abort(vm) : null;
+        consolidating.remove(vm.getId());
+        if (migration != null) {
+            capacityIndex.update(migration.getSource());
+        }
         if (host != null) {
             host.vmDestroy(vm);
+            capacityIndex.update(host);
         }
+        SimulationProfiler.stop(PROFILE_DEALLOCATE, start);
     }
 
     @Override
@@ -113,98 +302,382 @@ public class AutoScalingVmAllocationPolicy extends VmAllocationPolicy {
         return vmTable.get(Vm.getUid(userId, vmId));
     }
 
-    private Host findHostForVm(Vm vm) {
-        // First try to find a host with lowest utilization
-        Host bestHost = null;
-        double minUtilization = Double.MAX_VALUE;
+    Host findHostForVm(Vm vm) {
+        // Least-utilized suitable host, same pick as a linear scan over hostList; the
+        // energy-aware policy overrides findHost to pack instead
+        return findHost(vm.getCurrentRequestedTotalMips(), vm.getCurrentRequestedMaxMips(),
+            Math.min(vm.getCurrentRequestedRam(), vm.getRam()), vm.getCurrentRequestedBw(),
+            vmTable.get(vm.getUid()), host -> host.isSuitableForVm(vm));
+    }
+    
+    /**
+     * Host search behind VM placement and the moves of scale-ups, see
+     * {@link HostCapacityIndex#findHost}.
+     */
+    protected Host findHost(double totalMips, double maxMips, int ram, long bw, Host holder, Predicate<Host> suitable) {
+        return capacityIndex.findHost(totalMips, maxMips, ram, bw, holder, suitable);
+    }
+
+    public void updateVmUtilization(Vm vm, double utilization) {
+        int vmId = vm.getId();
+        if (vmState.isAllocated(vmId)) {
+            double currentTime = CloudSim.clock();
+            observe(vm, utilization, Double.NaN, Double.NaN, currentTime);
+            
+            // Check if we can scale (enough time passed since last scaling)
+            int newPes = getTargetPes(vm, utilization, currentTime);
+            if (isScaleUpCandidate(vm, newPes, currentTime)) {
+                scaleVm(vm, utilization, newPes);
+            } else if (isScaleDownCandidate(vm, currentTime)) {
+                scaleDownVm(vm, utilization, getScaleDownPes(vm, utilization, currentTime));
+            } else if (isResourceScalingCandidate(vm, currentTime)) {
+                scaleResources(vm, utilization);
+            }
+        }
+    }
+    
+    /**
+     * Batched update with CPU samples only; RAM and BW keep their last samples.
+     */
+    public void updateVmUtilization(double[] utilization) {
+        updateVmUtilization(utilization, null, null);
+    }
+
+    /**
+     * Batched form of {@link #updateVmUtilization(Vm, double)} for one monitoring tick.
+     * {@code utilization[vmId]} holds the CPU sample of each VM, NaN for VMs without one, and
+     * {@code ramUtilization} and {@code bwUtilization}, if not null, its RAM and BW samples.
+     * Scale-up candidates are collected in a single pass and then placed largest first,
+     * so small scale-ups early in the tick cannot fragment the hosts a larger VM needs.
+     *
+     * Candidates are placed one after another against the live capacity index rather than
+     * against one snapshot taken for the whole batch: each placement uses capacity the next one
+     * must not count again, so a snapshot would have to be updated after every placement, which
+     * is what the index already does. Scale-downs and RAM/BW-only changes are made during the
+     * collection pass instead of after it, so the capacity they free is there for the
+     * scale-ups placed afterwards.
+     */
+    public void updateVmUtilization(double[] utilization, double[] ramUtilization, double[] bwUtilization) {
+        long start = SimulationProfiler.start();
+        double currentTime = CloudSim.clock();
+        int limit = Math.min(utilization.length, vmState.getMaxId() + 1);
+        int candidates = 0;
         
-        for (Host host : hostList) {
-            if (host.isSuitableForVm(vm)) {
-                double utilization = calculateHostUtilization(host);
-                if (utilization < minUtilization) {
-                    minUtilization = utilization;
-                    bestHost = host;
+        for (int vmId = 0; vmId < limit; vmId++) {
+            double value = utilization[vmId];
+            if (Double.isNaN(value) || !vmState.isAllocated(vmId)) continue;
+            
+            Vm vm = vmState.getVm(vmId);
+            observe(vm, value,
+                ramUtilization != null ? ramUtilization[vmId] : Double.NaN,
+                bwUtilization != null ? bwUtilization[vmId] : Double.NaN,
+                currentTime);
+            int newPes = getTargetPes(vm, value, currentTime);
+            if (isScaleUpCandidate(vm, newPes, currentTime)) {
+                if (candidates == scaleCandidates.length) {
+                    scaleCandidates = Arrays.copyOf(scaleCandidates, candidates * 2);
                 }
+                // Sort key: requested MIPS after scaling, then lower VM id first on ties
+                long size = (long) (newPes * vm.getMips());
+                scaleCandidates[candidates++] = (size << 32) | (Integer.MAX_VALUE - vmId);
+            } else if (isScaleDownCandidate(vm, currentTime)) {
+                scaleDownVm(vm, value, getScaleDownPes(vm, value, currentTime));
+            } else if (isResourceScalingCandidate(vm, currentTime)) {
+                scaleResources(vm, value);
             }
         }
         
-        return bestHost;
+        Arrays.sort(scaleCandidates, 0, candidates);
+        for (int i = candidates - 1; i >= 0; i--) {
+            int vmId = Integer.MAX_VALUE - (int) (scaleCandidates[i] & 0xFFFFFFFFL);
+            Vm vm = vmState.getVm(vmId);
+            double value = vmState.getUtilization(vmId);
+            scaleVm(vm, value, getTargetPes(vm, value, currentTime));
+        }
+        SimulationProfiler.stop(PROFILE_UPDATE, start);
     }
-    
-    private double calculateHostUtilization(Host host) {
-        double totalMips = host.getTotalMips();
-        double usedMips = 0;
+
+    /**
+     * Records a sample: feeds the forecaster, tracks how long the VM has been under the
+     * scale-down threshold and counts the time since the VM's previous sample as saturated
+     * if that sample found it at 100% CPU. RAM and BW samples that are NaN are skipped.
+     */
+    private void observe(Vm vm, double utilization, double ramUtilization, double bwUtilization, double currentTime) {
+        int vmId = vm.getId();
+        double previousTime = forecaster.getLastSampleTime(vmId);
+        if (!Double.isNaN(previousTime) && vmState.getUtilization(vmId) >= 1.0) {
+            saturatedVmTime += currentTime - previousTime;
+        }
+        vmState.setUtilization(vmId, utilization);
+        if (utilization >= Constants.SCALE_DOWN_THRESHOLD) {
+            vmState.setLowSince(vmId, Double.NaN);
+        } else if (Double.isNaN(vmState.getLowSince(vmId))) {
+            vmState.setLowSince(vmId, currentTime);
+        }
+        forecaster.observe(vmId, currentTime, utilization * vm.getNumberOfPes(), vm.getNumberOfPes());
         
-        for (Vm vm : host.getVmList()) {
-            usedMips += vm.getCurrentRequestedTotalMips();
+        if (!Double.isNaN(ramUtilization)) {
+            vmState.setRamUtilization(vmId, ramUtilization);
+            if (ramUtilization >= Constants.RAM_SCALE_DOWN_THRESHOLD) {
+                vmState.setRamLowSince(vmId, Double.NaN);
+            } else if (Double.isNaN(vmState.getRamLowSince(vmId))) {
+                vmState.setRamLowSince(vmId, currentTime);
+            }
+        }
+        if (!Double.isNaN(bwUtilization)) {
+            vmState.setBwUtilization(vmId, bwUtilization);
+            if (bwUtilization >= Constants.BW_SCALE_DOWN_THRESHOLD) {
+                vmState.setBwLowSince(vmId, Double.NaN);
+            } else if (Double.isNaN(vmState.getBwLowSince(vmId))) {
+                vmState.setBwLowSince(vmId, currentTime);
+            }
+        }
+    }
+    
+    /**
+     * Whether the VM's RAM or BW should change on its own, its PEs staying as they are:
+     * one of them follows its own utilization, has a target different from its current size
+     * and the VM is out of its cooldown.
+     */
+    private boolean isResourceScalingCandidate(Vm vm, double currentTime) {
+        if (!(scaleRam || scaleBw) || isMigrating(vm)) return false;
+        if (currentTime - vmState.getLastScalingTime(vm.getId()) < Constants.SCALING_COOLDOWN) return false;
+        return getTargetRam(vm, currentTime) != vm.getRam() || getTargetBw(vm, currentTime) != vm.getBw();
+    }
+    
+    /**
+     * RAM the VM should have, in MB: its current RAM unless RAM follows its own utilization.
+     * See {@link #getTargetAmount}.
+     */
+    private int getTargetRam(Vm vm, double currentTime) {
+        if (!scaleRam) return vm.getRam();
+        int vmId = vm.getId();
+        return (int) getTargetAmount(vm.getRam(), vmState.getRamUtilization(vmId), vmState.getRamLowSince(vmId),
+            Constants.RAM_SCALING_THRESHOLD, Constants.RAM_SCALE_DOWN_THRESHOLD, vmState.getOriginalRam(vmId),
+            Constants.MAX_VM_RAM, currentTime);
+    }
+    
+    /**
+     * BW the VM should have, in Mbps: its current BW unless BW follows its own utilization.
+     */
+    private long getTargetBw(Vm vm, double currentTime) {
+        if (!scaleBw) return vm.getBw();
+        int vmId = vm.getId();
+        return getTargetAmount(vm.getBw(), vmState.getBwUtilization(vmId), vmState.getBwLowSince(vmId),
+            Constants.BW_SCALING_THRESHOLD, Constants.BW_SCALE_DOWN_THRESHOLD, vmState.getOriginalBw(vmId),
+            Constants.MAX_VM_BW, currentTime);
+    }
+    
+    /**
+     * Size of one resource from its own utilization: {@link Constants#AUTO_SCALING_FACTOR}
+     * times larger once over its threshold, up to {@code max}; once under its
+     * {@code downThreshold} for {@link Constants#SCALE_DOWN_DWELL}, just large enough to bring
+     * the demand to the midpoint of the two thresholds, but not under {@code original};
+     * otherwise unchanged.
+     */
+    private static long getTargetAmount(long current, double utilization, double lowSince, double threshold,
+                                        double downThreshold, long original, long max, double currentTime) {
+        if (utilization > threshold) {
+            return Math.max(current, Math.min(max, (long) Math.ceil(current * Constants.AUTO_SCALING_FACTOR)));
+        }
+        if (current > original && downThreshold > 0 &&
+                currentTime - lowSince >= Constants.SCALE_DOWN_DWELL) {
+            double midpoint = (downThreshold + threshold) / 2;
+            return Math.max(original, Math.min(current, (long) Math.ceil(utilization * current / midpoint)));
+        }
+        return current;
+    }
+
+    private boolean isScaleUpCandidate(Vm vm, int newPes, double currentTime) {
+        return newPes > vm.getNumberOfPes() && !isMigrating(vm) &&
+            (currentTime - vmState.getLastScalingTime(vm.getId()) >= Constants.SCALING_COOLDOWN);
+    }
+
+    /**
+     * A VM shrinks once it has been under {@link Constants#SCALE_DOWN_THRESHOLD} for
+     * {@link Constants#SCALE_DOWN_DWELL} and is out of its cooldown. Together with the gap
+     * between the two thresholds, the dwell time keeps a VM from flapping.
+     */
+    private boolean isScaleDownCandidate(Vm vm, double currentTime) {
+        int vmId = vm.getId();
+        return canScaleDown(vm) && !isMigrating(vm) &&
+            currentTime - vmState.getLowSince(vmId) >= Constants.SCALE_DOWN_DWELL &&
+            (currentTime - vmState.getLastScalingTime(vmId) >= Constants.SCALING_COOLDOWN);
+    }
+
+    private boolean canScaleDown(Vm vm) {
+        return Constants.SCALE_DOWN_THRESHOLD > 0 && vm.getNumberOfPes() > vmState.getOriginalPes(vm.getId());
+    }
+    
+    /**
+     * Whether the VM's RAM or BW could still change on its own utilization.
+     */
+    private boolean canScaleResources(Vm vm) {
+        int vmId = vm.getId();
+        return (scaleRam && (vm.getRam() < Constants.MAX_VM_RAM || vm.getRam() > vmState.getOriginalRam(vmId)))
+            || (scaleBw && (vm.getBw() < Constants.MAX_VM_BW || vm.getBw() > vmState.getOriginalBw(vmId)));
+    }
+
+    /**
+     * PEs a VM shrinks to: one {@link Constants#AUTO_SCALING_FACTOR} step down in reactive mode,
+     * straight to the forecast peak in predictive mode, but never so few that the demand would
+     * sit above the midpoint of the two thresholds, nor below the VM's original PEs.
+     */
+    private int getScaleDownPes(Vm vm, double utilization, double currentTime) {
+        int vmId = vm.getId();
+        int currentPes = vm.getNumberOfPes();
+        double demand = utilization * currentPes;
+        int target = 0;
+        if (predictive) {
+            demand = Math.max(demand, getPeakForecast(vmId, currentTime));
+        } else {
+            target = (int) Math.floor(currentPes / Constants.AUTO_SCALING_FACTOR);
+        }
+        double midpoint = (Constants.SCALE_DOWN_THRESHOLD + Constants.AUTO_SCALING_THRESHOLD) / 2;
+        target = Math.max(target, (int) Math.ceil(demand / midpoint));
+        return Math.min(Math.max(target, vmState.getOriginalPes(vmId)), currentPes);
+    }
+
+    /**
+     * PEs the VM should have, its current count if it should not scale up. Reactive mode
+     * scales by {@link Constants#AUTO_SCALING_FACTOR} once utilization is over the threshold.
+     * Predictive mode also scales when the forecast will cross the threshold within
+     * {@link Constants#FORECAST_HORIZON} intervals, to just enough PEs to keep the forecast
+     * peak under it.
+     */
+    private int getTargetPes(Vm vm, double utilization, double currentTime) {
+        int currentPes = vm.getNumberOfPes();
+        if (currentPes >= Constants.MAX_VM_PES) return currentPes;
+        if (!predictive) {
+            return utilization > Constants.AUTO_SCALING_THRESHOLD ? getScaledPes(currentPes) : currentPes;
         }
         
-        return usedMips / totalMips;
+        double demand = Math.max(utilization * currentPes, getPeakForecast(vm.getId(), currentTime));
+        if (demand <= Constants.AUTO_SCALING_THRESHOLD * currentPes) return currentPes;
+        int needed = (int) Math.ceil(demand / Constants.AUTO_SCALING_THRESHOLD);
+        return Math.min(Math.max(needed, currentPes + 1), Constants.MAX_VM_PES);
     }
 
-    public void updateVmUtilization(Vm vm, double utilization) {
-        if (vmUtilization.containsKey(vm)) {
-            vmUtilization.put(vm, utilization);
-            
-            double currentTime = CloudSim.clock();
-            double lastScaled = lastScalingTime.getOrDefault(vm.getId(), 0.0);
-            
-            // Check if we can scale (enough time passed since last scaling)
-            if (utilization > Constants.AUTO_SCALING_THRESHOLD && 
-                    (currentTime - lastScaled >= SCALING_COOLDOWN) &&
-                    vm.getNumberOfPes() < Constants.MAX_VM_PES) {
-                    
-                scaleVm(vm, utilization);
+    /**
+     * Highest forecast demand, in PEs, at the next {@link Constants#FORECAST_HORIZON} ticks.
+     */
+    private double getPeakForecast(int vmId, double currentTime) {
+        double peak = 0;
+        for (int i = 1; i <= Constants.FORECAST_HORIZON; i++) {
+            peak = Math.max(peak, forecaster.forecast(vmId, currentTime + i * Constants.SCHEDULING_INTERVAL));
+        }
+        return peak;
+    }
+
+    /**
+     * Time from now to the first tick within the horizon at which the forecast crosses the
+     * threshold for {@code pes} PEs; 0 if the VM is already over it.
+     */
+    private double getSaturationLead(int vmId, int pes, double utilization, double currentTime) {
+        if (utilization > Constants.AUTO_SCALING_THRESHOLD) return 0;
+        for (int i = 1; i <= Constants.FORECAST_HORIZON; i++) {
+            double time = currentTime + i * Constants.SCHEDULING_INTERVAL;
+            if (forecaster.forecast(vmId, time) > Constants.AUTO_SCALING_THRESHOLD * pes) {
+                return time - currentTime;
             }
         }
+        return 0;
+    }
+
+    /**
+     * Earliest time the VM could be scaled: the end of its cooldown or of its migration, or
+     * never once it is at {@link Constants#MAX_VM_PES} and can neither shrink, resize its RAM or
+     * BW, nor add a replica.
+     */
+    public double getNextScalingTime(Vm vm) {
+        double cooldownEnd = vmState.getLastScalingTime(vm.getId()) + Constants.SCALING_COOLDOWN;
+        if (migrations != null) {
+            cooldownEnd = Math.max(cooldownEnd, migrations.getEndTime(vm.getId()));
+        }
+        if (vm.getNumberOfPes() < Constants.MAX_VM_PES || canScaleDown(vm) || canScaleResources(vm)) {
+            return cooldownEnd;
+        }
+        int serviceId = replicas.getServiceId(vm.getId());
+        if (replicas.getReplicaCount(serviceId) < Constants.MAX_REPLICAS) {
+            return Math.max(cooldownEnd, replicas.getLastScaleOut(serviceId) + Constants.SCALING_COOLDOWN);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Whether the VM's service should get another replica: the VM is over the threshold but
+     * already at {@link Constants#MAX_VM_PES}, its service has fewer than
+     * {@link Constants#MAX_REPLICAS} replicas, and neither has scaled within the cooldown.
+     */
+    public boolean isScaleOutCandidate(Vm vm, double currentTime) {
+        int vmId = vm.getId();
+        if (!vmState.isAllocated(vmId) || vm.getNumberOfPes() < Constants.MAX_VM_PES) return false;
+        int serviceId = replicas.getServiceId(vmId);
+        return vmState.getUtilization(vmId) > Constants.AUTO_SCALING_THRESHOLD && !isMigrating(vm) &&
+            replicas.getReplicaCount(serviceId) < Constants.MAX_REPLICAS &&
+            (currentTime - vmState.getLastScalingTime(vmId) >= Constants.SCALING_COOLDOWN) &&
+            (currentTime - replicas.getLastScaleOut(serviceId) >= Constants.SCALING_COOLDOWN);
+    }
+
+    /**
+     * Time at which the VM will shrink if its CPU, RAM or BW utilization stays under the
+     * scale-down threshold, infinite if none of the resources above their original size is under it.
+     */
+    public double getNextScaleDownTime(Vm vm) {
+        int vmId = vm.getId();
+        double next = canScaleDown(vm) ? dwellEnd(vmState.getLowSince(vmId)) : Double.POSITIVE_INFINITY;
+        if (scaleRam && vm.getRam() > vmState.getOriginalRam(vmId)) {
+            next = Math.min(next, dwellEnd(vmState.getRamLowSince(vmId)));
+        }
+        if (scaleBw && vm.getBw() > vmState.getOriginalBw(vmId)) {
+            next = Math.min(next, dwellEnd(vmState.getBwLowSince(vmId)));
+        }
+        if (Double.isInfinite(next)) return next;
+        return Math.max(next, vmState.getLastScalingTime(vmId) + Constants.SCALING_COOLDOWN);
+    }
+    
+    private static double dwellEnd(double lowSince) {
+        return Double.isNaN(lowSince) ? Double.POSITIVE_INFINITY : lowSince + Constants.SCALE_DOWN_DWELL;
+    }
+
+    private int getScaledPes(int currentPes) {
+        return Math.min(
+            (int) Math.ceil(currentPes * Constants.AUTO_SCALING_FACTOR),
+            Constants.MAX_VM_PES
+        );
     }
 
-    private void scaleVm(Vm vm, double utilization) {
+    private void scaleVm(Vm vm, double utilization, int newPes) {
+        long start = SimulationProfiler.start();
+        scaleUpVm(vm, utilization, newPes);
+        SimulationProfiler.stop(PROFILE_SCALE_UP, start);
+    }
+    
+    /**
+     * Grows a VM in place, or else moves it to a host with room for its new size.
+     */
+    private void scaleUpVm(Vm vm, double utilization, int newPes) {
         Host currentHost = getHost(vm);
         if (currentHost == null) return;
         
         int currentPes = vm.getNumberOfPes();
-        int newPes = Math.min(
-            (int) Math.ceil(currentPes * Constants.AUTO_SCALING_FACTOR),
-            Constants.MAX_VM_PES
-        );
         
         // If already at max PEs or no increase in PEs, no need to scale
         if (newPes <= currentPes) return;
         
-        int newRam = (int) (vm.getRam() * Constants.AUTO_SCALING_FACTOR);
-        int newBw = (int) (vm.getBw() * Constants.AUTO_SCALING_FACTOR);
-        
-        // Create a new VM with increased resources
-        Vm newVm = new Vm(
-            vm.getId(), 
-            vm.getUserId(), 
-            vm.getMips(), 
-            newPes, 
-            newRam, 
-            newBw, 
-            vm.getSize(), 
-            vm.getVmm(), 
-            vm.getCloudletScheduler()
-        );
-        
-        // Update the vmTable to reflect the new VM
-        String vmUid = vm.getUid();
+        // RAM and BW follow their own utilization, or else grow with the PEs. Predictive targets
+        // need not be AUTO_SCALING_FACTOR times the PEs, so then they follow the PEs exactly
+        double factor = predictive ? (double) newPes / currentPes : Constants.AUTO_SCALING_FACTOR;
+        double currentTime = CloudSim.clock();
+        int oldRam = vm.getRam();
+        long oldBw = vm.getBw();
+        int newRam = scaleRam ? getTargetRam(vm, currentTime) : (int) (oldRam * factor);
+        long newBw = scaleBw ? getTargetBw(vm, currentTime) : (long) (oldBw * factor);
         
-        // Try to scale on the current host first
-        if (currentHost.isSuitableForVm(newVm)) {
-            // Destroy old VM and create new VM on the same host
-            currentHost.vmDestroy(vm);  // This returns void in CloudSim 3.0.3
-            
-            boolean success = currentHost.vmCreate(newVm);
-            if (!success) {
-                Log.printLine(CloudSim.clock() + ": " + getName() + ": Failed to create new scaled VM #" + vm.getId());
-                return;
-            }
-            
-            vmTable.put(vmUid, currentHost);
-            vmUtilization.put(newVm, utilization);
-            lastScalingTime.put(vm.getId(), CloudSim.clock());
+        // Try to grow the VM in place on the current host first
+        if (VmResizer.resize(currentHost, vm, newPes, newRam, newBw)) {
+            capacityIndex.update(currentHost);
+            vmState.setLastScalingTime(vm.getId(), CloudSim.clock());
             
             // Record the scaling event
             incrementScalingCount(vm.getId());
@@ -215,20 +688,17 @@ public class AutoScalingVmAllocationPolicy extends VmAllocationPolicy {
                 newPes, 
                 currentHost.getId(), 
                 currentHost.getId(),
-                utilization
+                utilization,
+                oldRam, newRam, oldBw, newBw
             );
-            
-            Log.printLine(CloudSim.clock() + ": " + getName() + ": VM #" + vm.getId() + 
-                " has been scaled up from " + currentPes + " PEs to " + newPes + " PEs");
         } else {
             // Try to find a new host if scaling on current host is not possible
-            Host newHost = findHostForVm(newVm);
-            if (newHost != null) {
-                currentHost.vmDestroy(vm);
-                newHost.vmCreate(newVm);
-                vmTable.put(vmUid, newHost);
-                vmUtilization.put(newVm, utilization);
-                lastScalingTime.put(vm.getId(), CloudSim.clock());
+            Host newHost = findHostForResize(vm, currentHost, newPes, newRam, newBw);
+            if (newHost != null && moveVm(vm, currentHost, newHost, newPes, newRam, newBw, utilization, true)) {
+                capacityIndex.update(currentHost);
+                capacityIndex.update(newHost);
+                vmTable.put(vm.getUid(), newHost);
+                vmState.setLastScalingTime(vm.getId(), CloudSim.clock());
                 
                 // Record the scaling event
                 incrementScalingCount(vm.getId());
@@ -239,27 +709,180 @@ public class AutoScalingVmAllocationPolicy extends VmAllocationPolicy {
                     newPes, 
                     currentHost.getId(), 
                     newHost.getId(),
-                    utilization
+                    utilization,
+                    oldRam, newRam, oldBw, newBw
                 );
-                
-                Log.printLine(CloudSim.clock() + ": " + getName() + ": VM #" + vm.getId() + 
-                    " has been migrated to host #" + newHost.getId() + " and scaled up to " + newPes + " PEs");
             }
         }
     }
     
+    /**
+     * Shrinks a VM on its host. The PEs, RAM and BW it gives up are free for other VMs at once.
+     */
+    private void scaleDownVm(Vm vm, double utilization, int newPes) {
+        Host host = getHost(vm);
+        if (host == null) return;
+        
+        int vmId = vm.getId();
+        int currentPes = vm.getNumberOfPes();
+        if (newPes >= currentPes) return;
+        
+        // RAM and BW follow their own utilization, or else shrink with the PEs, back to exactly
+        // their original size at the original PEs
+        double now = CloudSim.clock();
+        int oldRam = vm.getRam();
+        long oldBw = vm.getBw();
+        int newRam = vmState.getOriginalRam(vmId);
+        long newBw = vmState.getOriginalBw(vmId);
+        if (newPes > vmState.getOriginalPes(vmId)) {
+            newRam = Math.max(newRam, (int) ((long) oldRam * newPes / currentPes));
+            newBw = Math.max(newBw, oldBw * newPes / currentPes);
+        }
+        if (scaleRam) {
+            newRam = getTargetRam(vm, now);
+        }
+        if (scaleBw) {
+            newBw = getTargetBw(vm, now);
+        }
+        
+        if (VmResizer.resize(host, vm, newPes, newRam, newBw)) {
+            capacityIndex.update(host);
+            vmState.setLastScalingTime(vmId, now);
+            vmState.setLowSince(vmId, Double.NaN);
+            if (newRam < oldRam) {
+                vmState.setRamLowSince(vmId, Double.NaN);
+            }
+            if (newBw < oldBw) {
+                vmState.setBwLowSince(vmId, Double.NaN);
+            }
+            scaleDowns++;
+            
+            incrementScalingCount(vmId);
+            recordScalingEvent(now, vmId, currentPes, newPes, host.getId(), host.getId(), utilization,
+                oldRam, newRam, oldBw, newBw);
+        }
+    }
+    
+    /**
+     * Resizes a VM's RAM and BW to their targets, keeping its PEs. Growing that does not fit
+     * on the host moves the VM; as its PEs do not change, the move is not weighed against the
+     * CPU it would gain.
+     */
+    private void scaleResources(Vm vm, double utilization) {
+        Host host = getHost(vm);
+        if (host == null) return;
+        
+        int vmId = vm.getId();
+        int pes = vm.getNumberOfPes();
+        double now = CloudSim.clock();
+        int oldRam = vm.getRam();
+        long oldBw = vm.getBw();
+        int newRam = getTargetRam(vm, now);
+        long newBw = getTargetBw(vm, now);
+        
+        Host newHost = host;
+        if (!VmResizer.resize(host, vm, pes, newRam, newBw)) {
+            if (newRam <= oldRam && newBw <= oldBw) return;
+            newHost = findHostForResize(vm, host, pes, newRam, newBw);
+            if (newHost == null || !moveVm(vm, host, newHost, pes, newRam, newBw, utilization, false)) return;
+            capacityIndex.update(newHost);
+            vmTable.put(vm.getUid(), newHost);
+        }
+        capacityIndex.update(host);
+        vmState.setLastScalingTime(vmId, now);
+        if (newRam < oldRam) {
+            vmState.setRamLowSince(vmId, Double.NaN);
+        }
+        if (newBw < oldBw) {
+            vmState.setBwLowSince(vmId, Double.NaN);
+        }
+        
+        incrementScalingCount(vmId);
+        recordScalingEvent(now, vmId, pes, pes, host.getId(), newHost.getId(), utilization,
+            oldRam, newRam, oldBw, newBw);
+    }
+    
+    private Host findHostForResize(Vm vm, Host currentHost, int pes, int ram, long bw) {
+        return findHost(pes * vm.getMips(), vm.getMips(), ram, bw, null,
+            host -> host != currentHost && VmResizer.canHost(host, vm, pes, ram, bw));
+    }
+    
     private void incrementScalingCount(int vmId) {
-        vmScalingHistory.put(vmId, vmScalingHistory.getOrDefault(vmId, 0) + 1);
+        vmState.incrementScalingCount(vmId);
     }
     
     private void recordScalingEvent(double time, int vmId, int oldPes, int newPes, 
-                                   int oldHostId, int newHostId, double cpuUtilization) {
-        ScalingEvent event = new ScalingEvent(time, vmId, oldPes, newPes, oldHostId, newHostId, cpuUtilization);
+                                   int oldHostId, int newHostId, double cpuUtilization,
+                                   int oldRam, int newRam, long oldBw, long newBw) {
+        double forecastUtilization = getPeakForecast(vmId, time) / oldPes;
+        double lead = predictive && newPes > oldPes ? getSaturationLead(vmId, oldPes, cpuUtilization, time) : 0;
+        if (lead > 0) {
+            predictiveScaleUps++;
+            avoidedSaturationTime += lead;
+        }
+        ScalingEvent event = new ScalingEvent(time, vmId, oldPes, newPes, oldHostId, newHostId,
+            cpuUtilization, forecastUtilization, lead);
+        event.oldRam = oldRam;
+        event.newRam = newRam;
+        event.oldBw = oldBw;
+        event.newBw = newBw;
+        event.resource = changedResources(oldPes != newPes, oldRam != newRam, oldBw != newBw);
+        if (oldPes == newPes) {
+            event.direction = newRam > oldRam || newBw > oldBw ? "up" : "down";
+        }
         vmScalingEvents.get(vmId).add(event);
+        EventTracer.scale(event);
+        if (scalingEventListener != null) {
+            scalingEventListener.accept(event);
+        }
+    }
+    
+    private static String changedResources(boolean cpu, boolean ram, boolean bw) {
+        StringBuilder resources = new StringBuilder();
+        if (cpu) resources.append("cpu");
+        if (ram) resources.append(resources.length() > 0 ? "+" : "").append("ram");
+        if (bw) resources.append(resources.length() > 0 ? "+" : "").append("bw");
+        return resources.toString();
+    }
+    
+    /**
+     * Records a replica VM being added to its service (direction "out") or retired ("in") as a
+     * scaling event of the replica, from or to zero PEs. Called while the replica is placed.
+     */
+    public void recordReplicaEvent(Vm replica, boolean added) {
+        int hostId = getHost(replica).getId();
+        int pes = replica.getNumberOfPes();
+        double time = CloudSim.clock();
+        ScalingEvent event = added
+            ? new ScalingEvent(time, replica.getId(), 0, pes, -1, hostId, 0)
+            : new ScalingEvent(time, replica.getId(), pes, 0, hostId, -1, vmState.getUtilization(replica.getId()));
+        event.direction = added ? "out" : "in";
+        event.oldRam = added ? 0 : replica.getRam();
+        event.newRam = added ? replica.getRam() : 0;
+        event.oldBw = added ? 0 : replica.getBw();
+        event.newBw = added ? replica.getBw() : 0;
+        vmScalingEvents.computeIfAbsent(replica.getId(), id -> new ArrayList<>()).add(event);
+        if (scalingEventListener != null) {
+            scalingEventListener.accept(event);
+        }
+    }
+    
+    /**
+     * Sets a callback invoked when a live migration starts, to schedule its end.
+     */
+    public void setMigrationListener(Consumer<MigrationCostModel.Migration> listener) {
+        this.migrationListener = listener;
+    }
+    
+    /**
+     * Sets a callback invoked for every scaling event as it is recorded.
+     */
+    public void setScalingEventListener(Consumer<ScalingEvent> listener) {
+        this.scalingEventListener = listener;
     }
     
     public Map<Integer, Integer> getVmScalingHistory() {
-        return vmScalingHistory;
+        return vmState.scalingCountView();
     }
     
     public Map<Integer, List<ScalingEvent>> getVmScalingEvents() {
@@ -267,10 +890,69 @@ public class AutoScalingVmAllocationPolicy extends VmAllocationPolicy {
     }
     
     public Map<Integer, Integer> getOriginalPes() {
-        return originalPes;
+        return vmState.originalPesView();
+    }
+    
+    public Map<Integer, Double> getLastScalingTime() {
+        return vmState.lastScalingTimeView();
     }
     
     public Map<Vm, Double> getVmUtilization() {
-        return vmUtilization;
+        return vmState.utilizationView();
+    }
+    
+    public int getConsolidationRounds() {
+        return consolidationRounds;
+    }
+    
+    public int getConsolidationMigrations() {
+        return consolidationMigrations;
+    }
+    
+    public int getHostsFreed() {
+        return hostsFreed;
+    }
+    
+    public int getActiveHostCount() {
+        int active = 0;
+        for (Host host : hostList) {
+            if (PowerMeteredHost.isInUse(host)) active++;
+        }
+        return active;
+    }
+    
+    public VmStateStore getVmState() {
+        return vmState;
+    }
+    
+    public UtilizationForecaster getForecaster() {
+        return forecaster;
+    }
+    
+    public double getSaturatedVmTime() {
+        return saturatedVmTime;
+    }
+    
+    public int getPredictiveScaleUps() {
+        return predictiveScaleUps;
+    }
+    
+    public double getAvoidedSaturationTime() {
+        return avoidedSaturationTime;
+    }
+    
+    public int getScaleDowns() {
+        return scaleDowns;
+    }
+    
+    public ReplicaRegistry getReplicaRegistry() {
+        return replicas;
+    }
+    
+    /**
+     * Live migration statistics, null when migrations are instant.
+     */
+    public MigrationCostModel getMigrationCostModel() {
+        return migrations;
     }
 }
\ No newline at end of file
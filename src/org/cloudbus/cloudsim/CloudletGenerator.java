@@ -1,49 +1,168 @@
 package org.cloudbus.cloudsim;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 public class CloudletGenerator {
+    private static final String[] CPU_MODELS = parseModels(Constants.CPU_UTILIZATION_MODELS);
+    private static float[] utilizationTrace;
+    
     public static List<Cloudlet> createCloudlets(int userId, int count) {
         List<Cloudlet> cloudlets = new ArrayList<>();
-        Random rand = new Random();
         
         for (int i = 0; i < count; i++) {
-            // Create cloudlets with varying computational requirements
-            long length = (long) (Constants.CLOUDLET_LENGTH * (0.8 + 0.4 * rand.nextDouble()));
-            
-            // Use different utilization models to create dynamic workloads
-            UtilizationModel cpuModel;
-            
-            // Assign different types of CPU utilization models to simulate varying workloads
-            int modelType = rand.nextInt(3);
-            switch (modelType) {
-                case 0:
-                    // Full utilization model - always uses 100% of allocated resources
-                    cpuModel = new UtilizationModelFull();
-                    break;
-                case 1:
-                    // Stochastic model - utilization varies randomly over time
-                    cpuModel = new UtilizationModelStochastic();
+            cloudlets.add(createCloudlet(i, userId));
+        }
+        
+        return cloudlets;
+    }
+    
+    /**
+     * Creates one synthetic cloudlet with a randomized length and CPU utilization model. The
+     * random values are hashed from the cloudlet's own seed in the {@link RandomStreams#CLOUDLETS}
+     * stream, so a cloudlet is the same whatever order the cloudlets are created in.
+     */
+    public static Cloudlet createCloudlet(int id, int userId) {
+        long seed = RandomStreams.seed(RandomStreams.CLOUDLETS, id);
+        long modelSeed = UtilizationModels.hash(seed, 2);
+        
+        // Create cloudlets with varying computational requirements
+        long length = (long) (Constants.CLOUDLET_LENGTH * (0.8 + 0.4 * RandomStreams.uniform(seed, 0)));
+        
+        // Assign different types of CPU utilization models to simulate varying workloads
+        String modelType = CPU_MODELS[RandomStreams.nextInt(seed, 1, CPU_MODELS.length)];
+        UtilizationModel cpuModel;
+        switch (modelType) {
+            case "full":
+                // Full utilization model - always uses 100% of allocated resources
+                cpuModel = new UtilizationModelFull();
+                break;
+            case "stochastic":
+                // Stochastic model - utilization varies randomly over time
+                cpuModel = new UtilizationModels.Stochastic(modelSeed);
+                break;
+            case "randomwalk":
+                cpuModel = new UtilizationModels.RandomWalk(modelSeed, 0.5, 0.1, 1.0);
+                break;
+            case "periodic":
+                cpuModel = new UtilizationModels.Periodic(modelSeed, 0.6, 0.3, 30.0, 0.1);
+                break;
+            case "trace":
+                float[] trace = utilizationTrace();
+                cpuModel = new UtilizationModels.TraceBacked(trace, Constants.UTILIZATION_TRACE_INTERVAL, RandomStreams.nextInt(seed, 3, trace.length));
+                break;
+            default:
+                // Custom utilization model that increases over time
+                cpuModel = new DynamicUtilizationModel(0.5, 0.1);
+                break;
+        }
+        
+        // Create the cloudlet with the selected utilization model
+        Cloudlet cloudlet = new Cloudlet(
+            id, length, Constants.CLOUDLET_PES,
+            Constants.CLOUDLET_FILE_SIZE, Constants.CLOUDLET_OUTPUT_SIZE,
+            cpuModel, createRamUtilizationModel(id), createBwUtilizationModel(id)
+        );
+        cloudlet.setUserId(userId);
+        return cloudlet;
+    }
+    
+    /**
+     * RAM model of a cloudlet: a working set that builds up from 20% of
+     * {@link Constants#CLOUDLET_RAM} and levels off at 50-100% of it, depending on the cloudlet.
+     * The spread comes from the cloudlet id rather than the random source, so adding the model
+     * does not change the CPU models drawn for the cloudlets.
+     */
+    public static UtilizationModel createRamUtilizationModel(int id) {
+        return new WorkingSetUtilizationModel(0.2, 0.5 + 0.5 * spread(id, 0.6180339887), 5.0);
+    }
+    
+    /**
+     * BW model of a cloudlet: transfers at 90% of {@link Constants#CLOUDLET_BW} for 3 s out of
+     * every 10 s and at 10% in between, cloudlets being out of phase by their id.
+     */
+    public static UtilizationModel createBwUtilizationModel(int id) {
+        return new BurstyUtilizationModel(0.1, 0.9, 10.0, 3.0, 10.0 * spread(id, 0.7548776662));
+    }
+    
+    /**
+     * Low-discrepancy value in [0, 1) for an id, so consecutive ids are spread evenly.
+     */
+    private static double spread(int id, double step) {
+        double value = id * step;
+        return value - Math.floor(value);
+    }
+    
+    /**
+     * Opens a trace file as a lazily read workload. The format is chosen from the file
+     * extension, see {@link TraceWorkloadReader}.
+     */
+    public static WorkloadSource streamCloudlets(int userId, Path trace) {
+        return new TraceWorkloadReader(trace, TraceWorkloadReader.detectFormat(trace), userId, Constants.VM_MIPS, 0);
+    }
+    
+    /**
+     * Creates a CPU utilization model from a trace profile: "full", "stochastic",
+     * "dynamic:initial:incrementPerSec", "randomwalk:initial:step", "periodic:mean:amplitude:period",
+     * "trace" or a constant fraction such as "0.6". A null or empty profile means full utilization.
+     * Random models are seeded from the cloudlet's seed, and "trace" replays
+     * {@link Constants#UTILIZATION_TRACE_FILE} from an offset given by the id.
+     */
+    public static UtilizationModel createUtilizationModel(String profile, int id) {
+        if (profile == null || profile.isEmpty() || profile.equalsIgnoreCase("full")) {
+            return new UtilizationModelFull();
+        }
+        String[] parts = profile.split(":");
+        long seed = RandomStreams.seed(RandomStreams.CLOUDLETS, id);
+        switch (parts[0].toLowerCase()) {
+            case "stochastic":
+                return new UtilizationModels.Stochastic(seed);
+            case "dynamic":
+                return new DynamicUtilizationModel(argument(parts, 1, 0.5), argument(parts, 2, 0.1));
+            case "randomwalk":
+                return new UtilizationModels.RandomWalk(seed, argument(parts, 1, 0.5), argument(parts, 2, 0.1), 1.0);
+            case "periodic":
+                return new UtilizationModels.Periodic(seed, argument(parts, 1, 0.6), argument(parts, 2, 0.3),
+                    argument(parts, 3, 30.0), 0.1);
+            case "trace":
+                return new UtilizationModels.TraceBacked(utilizationTrace(), Constants.UTILIZATION_TRACE_INTERVAL, id);
+            default:
+                double constant = Math.max(0.0, Math.min(1.0, Double.parseDouble(profile)));
+                return time -> constant;
+        }
+    }
+    
+    private static double argument(String[] parts, int index, double defaultValue) {
+        return parts.length > index ? Double.parseDouble(parts[index]) : defaultValue;
+    }
+    
+    /**
+     * The trace replayed by "trace" models, read once and shared by all of them.
+     */
+    private static synchronized float[] utilizationTrace() {
+        if (utilizationTrace == null) {
+            if (Constants.UTILIZATION_TRACE_FILE.isEmpty()) {
+                throw new IllegalArgumentException("The trace utilization model needs UTILIZATION_TRACE_FILE");
+            }
+            utilizationTrace = UtilizationModels.loadTrace(Paths.get(Constants.UTILIZATION_TRACE_FILE));
+        }
+        return utilizationTrace;
+    }
+    
+    private static String[] parseModels(String list) {
+        String[] models = list.toLowerCase().split(",");
+        for (int i = 0; i < models.length; i++) {
+            models[i] = models[i].trim();
+            switch (models[i]) {
+                case "full": case "stochastic": case "dynamic": case "randomwalk": case "periodic": case "trace":
                     break;
                 default:
-                    // Custom utilization model that increases over time
-                    cpuModel = new DynamicUtilizationModel(0.5, 0.1);
-                    break;
+                    throw new IllegalArgumentException("Unknown CPU_UTILIZATION_MODELS entry: " + models[i]);
             }
-            
-            // Create the cloudlet with the selected utilization model
-            Cloudlet cloudlet = new Cloudlet(
-                i, length, Constants.CLOUDLET_PES,
-                Constants.CLOUDLET_FILE_SIZE, Constants.CLOUDLET_OUTPUT_SIZE,
-                cpuModel, new UtilizationModelFull(), new UtilizationModelFull()
-            );
-            cloudlet.setUserId(userId);
-            cloudlets.add(cloudlet);
         }
-        
-        return cloudlets;
+        return models;
     }
     
     /**
@@ -64,4 +183,57 @@ public class CloudletGenerator {
             return Math.min(1.0, initialUtilization + time * utilizationIncrementPerSec);
         }
     }
+    
+    /**
+     * Working set that grows from an initial to a peak fraction with time constant
+     * {@code rampTime}, counted from the first time the cloudlet is asked for it
+     */
+    public static class WorkingSetUtilizationModel implements UtilizationModel {
+        private final double initialUtilization;
+        private final double peakUtilization;
+        private final double rampTime;
+        private double startTime = Double.NaN;
+        
+        public WorkingSetUtilizationModel(double initialUtilization, double peakUtilization, double rampTime) {
+            this.initialUtilization = initialUtilization;
+            this.peakUtilization = peakUtilization;
+            this.rampTime = rampTime;
+        }
+        
+        @Override
+        public double getUtilization(double time) {
+            if (Double.isNaN(startTime)) {
+                startTime = time;
+            }
+            double elapsed = Math.max(0, time - startTime);
+            return peakUtilization - (peakUtilization - initialUtilization) * Math.exp(-elapsed / rampTime);
+        }
+    }
+    
+    /**
+     * On/off utilization: {@code burstUtilization} for the first {@code burstLength} seconds
+     * of every period, shifted by {@code phase}, and {@code baseUtilization} otherwise
+     */
+    public static class BurstyUtilizationModel implements UtilizationModel {
+        private final double baseUtilization;
+        private final double burstUtilization;
+        private final double period;
+        private final double burstLength;
+        private final double phase;
+        
+        public BurstyUtilizationModel(double baseUtilization, double burstUtilization,
+                                      double period, double burstLength, double phase) {
+            this.baseUtilization = baseUtilization;
+            this.burstUtilization = burstUtilization;
+            this.period = period;
+            this.burstLength = burstLength;
+            this.phase = phase;
+        }
+        
+        @Override
+        public double getUtilization(double time) {
+            double position = (time + phase) % period;
+            return position < burstLength ? burstUtilization : baseUtilization;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package org.cloudbus.cloudsim;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Datacenter that periodically asks its allocation policy for a consolidation plan and
+ * executes the returned migrations, in the same way PowerDatacenter does for power-aware
+ * policies. Migrations of running VMs go through the auto-scaling policy so that the same
+ * Vm object moves with its cloudlets. Live migrations started by the policy end with a
+ * MIGRATION_COMPLETE event once their transfer time has passed.
+ */
+public class ConsolidatingDatacenter extends Datacenter {
+    public static final int CONSOLIDATE = 987654323;
+    public static final int MIGRATION_COMPLETE = 987654325;
+
+    private final double consolidationInterval;
+    private long eventsProcessed;
+
+    public ConsolidatingDatacenter(String name, DatacenterCharacteristics characteristics,
+            VmAllocationPolicy vmAllocationPolicy, List<Storage> storageList,
+            double schedulingInterval, double consolidationInterval) throws Exception {
+        super(name, characteristics, vmAllocationPolicy, storageList, schedulingInterval);
+        this.consolidationInterval = consolidationInterval;
+        if (vmAllocationPolicy instanceof AutoScalingVmAllocationPolicy) {
+            ((AutoScalingVmAllocationPolicy) vmAllocationPolicy).setMigrationListener(
+                migration -> send(getId(), migration.getDuration(), MIGRATION_COMPLETE, migration));
+        }
+    }
+
+    @Override
+    public void startEntity() {
+        super.startEntity();
+        if (consolidationInterval > 0) {
+            schedule(getId(), consolidationInterval, CONSOLIDATE);
+        }
+    }
+
+    @Override
+    public void processEvent(SimEvent ev) {
+        eventsProcessed++;
+        long start = SimulationProfiler.start();
+        super.processEvent(ev);
+        SimulationProfiler.stopEvent(SimulationProfiler.DATACENTER, ev.getTag(), start);
+    }
+
+    @Override
+    protected void processOtherEvent(SimEvent ev) {
+        if (ev.getTag() == CONSOLIDATE) {
+            consolidate();
+            if (CloudSim.clock() + consolidationInterval < Constants.SIMULATION_LIMIT) {
+                schedule(getId(), consolidationInterval, CONSOLIDATE);
+            }
+        } else if (ev.getTag() == MIGRATION_COMPLETE) {
+            ((AutoScalingVmAllocationPolicy) getVmAllocationPolicy())
+                .completeMigration((MigrationCostModel.Migration) ev.getData());
+            // The VM has its full MIPS again, so its cloudlets' finish times move earlier
+            updateCloudletProcessing();
+        } else {
+            super.processOtherEvent(ev);
+        }
+    }
+
+    private void consolidate() {
+        List<Map<String, Object>> migrationMap = getVmAllocationPolicy().optimizeAllocation(getVmList());
+        if (migrationMap == null) return;
+
+        for (Map<String, Object> migrate : migrationMap) {
+            sendNow(getId(), CloudSimTags.VM_MIGRATE, migrate);
+        }
+    }
+
+    @Override
+    protected void processVmMigrate(SimEvent ev, boolean ack) {
+        if (!(getVmAllocationPolicy() instanceof AutoScalingVmAllocationPolicy)) {
+            super.processVmMigrate(ev, ack);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> migrate = (Map<String, Object>) ev.getData();
+        Vm vm = (Vm) migrate.get("vm");
+        Host host = (Host) migrate.get("host");
+
+        // The plan may be outdated if the VM was scaled or moved since; it is then skipped
+        ((AutoScalingVmAllocationPolicy) getVmAllocationPolicy()).migrateVm(vm, host);
+    }
+
+    public long getEventsProcessed() {
+        return eventsProcessed;
+    }
+}
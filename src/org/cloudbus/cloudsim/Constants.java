@@ -1,37 +1,169 @@
 package org.cloudbus.cloudsim;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+/**
+ * Simulation parameters. Each one can be overridden without recompiling: by a system property
+ * named {@code sim.<NAME>} (e.g. {@code -Dsim.AUTO_SCALING_THRESHOLD=0.8}), or, for runs of
+ * {@link SweepRunner}, by the {@value #RUN_PARAMETERS_RESOURCE} resource of the run's class loader.
+ */
 public class Constants {
+    static final String RUN_PARAMETERS_RESOURCE = "sweep-run.properties";
+    private static final Properties OVERRIDES = loadOverrides();
+    
     // Host parameters
-    public static final int HOSTS = 10;
-    public static final int HOST_PES = 12;         // Number of CPU cores per host
-    public static final int HOST_MIPS = 1000;      // MIPS per PE
-    public static final int HOST_RAM = 8192;       // Host RAM in MB
-    public static final int HOST_BW = 10000;       // Host bandwidth in Mbps
-    public static final int HOST_STORAGE = 1000000; // Host storage in MB
-    public static final double HOST_COST = 0.1;     // $ per hour per host
-    public static final double COST_PER_MEM = 0.05; // $ per MB of memory
-    public static final double COST_PER_STORAGE = 0.001; // $ per MB of storage
-    public static final double COST_PER_BW = 0.01;  // $ per Mbps of bandwidth
+    public static final int HOSTS = intParam("HOSTS", 10);
+    public static final int HOST_PES = intParam("HOST_PES", 12);                          // Number of CPU cores per host
+    public static final int HOST_MIPS = intParam("HOST_MIPS", 1000);                      // MIPS per PE
+    public static final int HOST_RAM = intParam("HOST_RAM", 8192);                        // Host RAM in MB
+    public static final int HOST_BW = intParam("HOST_BW", 10000);                         // Host bandwidth in Mbps
+    public static final int HOST_STORAGE = intParam("HOST_STORAGE", 1000000);             // Host storage in MB
+    public static final double HOST_COST = doubleParam("HOST_COST", 0.1);                 // $ per hour per host
+    public static final double COST_PER_MEM = doubleParam("COST_PER_MEM", 0.05);          // $ per MB of memory
+    public static final double COST_PER_STORAGE = doubleParam("COST_PER_STORAGE", 0.001); // $ per MB of storage
+    public static final double COST_PER_BW = doubleParam("COST_PER_BW", 0.01);            // $ per Mbps of bandwidth
     
     // VM parameters
-    public static final int VMS = 5;
-    public static final int VM_MIPS = 1000;        // MIPS per PE
-    public static final int VM_PES = 2;            // Initial number of PEs per VM
-    public static final int MAX_VM_PES = 8;        // Maximum PEs a VM can be scaled to
-    public static final int VM_RAM = 1024;         // VM RAM in MB
-    public static final int VM_BW = 1000;          // VM bandwidth in Mbps
-    public static final int VM_SIZE = 10000;       // VM image size in MB
+    public static final int VMS = intParam("VMS", 5);
+    public static final int VM_MIPS = intParam("VM_MIPS", 1000);       // MIPS per PE
+    public static final int VM_PES = intParam("VM_PES", 2);            // Initial number of PEs per VM
+    public static final int MAX_VM_PES = intParam("MAX_VM_PES", 8);    // Maximum PEs a VM can be scaled to
+    public static final int VM_RAM = intParam("VM_RAM", 1024);         // VM RAM in MB
+    public static final int VM_BW = intParam("VM_BW", 1000);           // VM bandwidth in Mbps
+    public static final int MAX_VM_RAM = intParam("MAX_VM_RAM", 4096); // Maximum RAM a VM can be scaled to, in MB
+    public static final int MAX_VM_BW = intParam("MAX_VM_BW", 4000);   // Maximum BW a VM can be scaled to, in Mbps
+    public static final int VM_SIZE = intParam("VM_SIZE", 10000);      // VM image size in MB
     
     // Cloudlet parameters
-    public static final int CLOUDLETS = 20;
-    public static final int CLOUDLET_PES = 1;      // Number of PEs required by each cloudlet
-    public static final int CLOUDLET_LENGTH = 20000; // Length of cloudlet in MI
-    public static final int CLOUDLET_FILE_SIZE = 300; // Input file size in MB
-    public static final int CLOUDLET_OUTPUT_SIZE = 300; // Output file size in MB
+    public static final int CLOUDLETS = intParam("CLOUDLETS", 20);
+    public static final int CLOUDLET_PES = intParam("CLOUDLET_PES", 1);                   // Number of PEs required by each cloudlet
+    public static final int CLOUDLET_LENGTH = intParam("CLOUDLET_LENGTH", 20000);         // Length of cloudlet in MI
+    public static final int CLOUDLET_FILE_SIZE = intParam("CLOUDLET_FILE_SIZE", 300);     // Input file size in MB
+    public static final int CLOUDLET_OUTPUT_SIZE = intParam("CLOUDLET_OUTPUT_SIZE", 300); // Output file size in MB
+    public static final int CLOUDLET_RAM = intParam("CLOUDLET_RAM", 256);                 // Working set in MB of a cloudlet at 100% RAM utilization
+    public static final int CLOUDLET_BW = intParam("CLOUDLET_BW", 250);                   // Mbps a cloudlet uses at 100% BW utilization
+    public static final String CPU_UTILIZATION_MODELS = stringParam("CPU_UTILIZATION_MODELS", "full,stochastic,dynamic"); // CPU models drawn uniformly for synthetic cloudlets: full, stochastic, dynamic, randomwalk, periodic, trace
+    public static final String UTILIZATION_TRACE_FILE = stringParam("UTILIZATION_TRACE_FILE", "");   // Utilization per line (fraction or percent) replayed by the trace model
+    public static final double UTILIZATION_TRACE_INTERVAL = doubleParam("UTILIZATION_TRACE_INTERVAL", 5.0); // Seconds between trace samples
+    
+    // Workload trace (SWF or CSV) replayed instead of the synthetic cloudlets, empty for none
+    public static final String WORKLOAD_TRACE_FILE = stringParam("WORKLOAD_TRACE_FILE", "");
+    
+    // Open-loop arrival parameters, used when no trace is given
+    public static final String ARRIVAL_PROCESS = stringParam("ARRIVAL_PROCESS", "none");             // "none" (all cloudlets at t=0), "poisson", "mmpp" or "diurnal"
+    public static final double ARRIVAL_RATE = doubleParam("ARRIVAL_RATE", 1.0);                      // Mean cloudlet arrivals per second (calm rate for MMPP)
+    public static final double MMPP_BURST_RATE = doubleParam("MMPP_BURST_RATE", 5.0);                // Arrivals per second during an MMPP burst
+    public static final double MMPP_MEAN_CALM_TIME = doubleParam("MMPP_MEAN_CALM_TIME", 15.0);       // Mean seconds spent in the calm state
+    public static final double MMPP_MEAN_BURST_TIME = doubleParam("MMPP_MEAN_BURST_TIME", 5.0);      // Mean seconds spent in the burst state
+    public static final double DIURNAL_AMPLITUDE = doubleParam("DIURNAL_AMPLITUDE", 0.8);            // Relative swing of the diurnal rate around its mean
+    public static final double DIURNAL_PERIOD = doubleParam("DIURNAL_PERIOD", 50.0);                 // Length of one diurnal cycle in seconds
+    public static final int SUBMISSION_QUEUE_CAPACITY = intParam("SUBMISSION_QUEUE_CAPACITY", 1000); // Cloudlets waiting in the broker before arrivals are rejected
+    public static final int CLOUDLETS_PER_PE = intParam("CLOUDLETS_PER_PE", 2);                      // Cloudlets dispatched to a VM at once, per PE
     
     // Simulation parameters
-    public static final double SCHEDULING_INTERVAL = 1.0; // Time interval for scheduling in seconds
-    public static final double AUTO_SCALING_THRESHOLD = 0.7; // 70% CPU utilization threshold for scaling
-    public static final double AUTO_SCALING_FACTOR = 1.5;  // Scale up by 50%
-    public static final double SIMULATION_LIMIT = 50.0;   // Maximum simulation time in seconds
-}
\ No newline at end of file
+    public static final double SCHEDULING_INTERVAL = doubleParam("SCHEDULING_INTERVAL", 1.0);       // Time interval for scheduling in seconds
+    public static final double AUTO_SCALING_THRESHOLD = doubleParam("AUTO_SCALING_THRESHOLD", 0.7); // 70% CPU utilization threshold for scaling
+    public static final double AUTO_SCALING_FACTOR = doubleParam("AUTO_SCALING_FACTOR", 1.5);       // Scale up by 50%
+    public static final double SCALING_COOLDOWN = doubleParam("SCALING_COOLDOWN", 5.0);             // Minimum time between two scalings of a VM
+    public static final double SCALE_DOWN_THRESHOLD = doubleParam("SCALE_DOWN_THRESHOLD", 0.3);     // Utilization under which a scaled-up VM shrinks, 0 disables scale-down
+    public static final double SCALE_DOWN_DWELL = doubleParam("SCALE_DOWN_DWELL", 10.0);            // Seconds a VM must stay under the scale-down threshold before shrinking
+    public static final double RAM_SCALING_THRESHOLD = doubleParam("RAM_SCALING_THRESHOLD", 0.8);   // RAM utilization over which a VM's RAM grows, 0 to scale RAM with the PEs
+    public static final double BW_SCALING_THRESHOLD = doubleParam("BW_SCALING_THRESHOLD", 0.8);     // BW utilization over which a VM's BW grows, 0 to scale BW with the PEs
+    public static final double RAM_SCALE_DOWN_THRESHOLD = doubleParam("RAM_SCALE_DOWN_THRESHOLD", SCALE_DOWN_THRESHOLD); // RAM utilization under which grown RAM shrinks, 0 disables
+    public static final double BW_SCALE_DOWN_THRESHOLD = doubleParam("BW_SCALE_DOWN_THRESHOLD", SCALE_DOWN_THRESHOLD);   // BW utilization under which grown BW shrinks, 0 disables
+    public static final int MAX_REPLICAS = intParam("MAX_REPLICAS", 0);                             // Replica VMs a service may add once its VM is at MAX_VM_PES, 0 for vertical scaling only
+    public static final double REPLICA_IDLE_TIME = doubleParam("REPLICA_IDLE_TIME", 10.0);          // Seconds a replica may sit idle before it is retired
+    public static final double SIMULATION_LIMIT = doubleParam("SIMULATION_LIMIT", 50.0);            // Maximum simulation time in seconds
+    public static final long RANDOM_SEED = longParam("RANDOM_SEED", 42);                            // Run seed every random stream is derived from
+    public static final String EVENT_QUEUE = stringParam("EVENT_QUEUE", "calendar");                // Future event queue: "calendar", or "tree" for the stock TreeSet
+    public static final String SAMPLING_MODE = stringParam("SAMPLING_MODE", "fixed");               // "fixed" samples every VM each tick, "adaptive" only VMs that could scale
+    public static final double SAMPLING_TOLERANCE = doubleParam("SAMPLING_TOLERANCE", 0.05);        // Utilization change under which a VM's load counts as stable
+    public static final double MAX_SAMPLING_INTERVAL = doubleParam("MAX_SAMPLING_INTERVAL", 8.0);   // Longest adaptive sampling period in seconds
+    
+    // Predictive scaling parameters
+    public static final String SCALING_MODE = stringParam("SCALING_MODE", "reactive");     // "reactive" scales past the threshold, "predictive" before the forecast crosses it
+    public static final double FORECAST_ALPHA = doubleParam("FORECAST_ALPHA", 0.5);        // Level smoothing of the Holt forecast
+    public static final double FORECAST_BETA = doubleParam("FORECAST_BETA", 0.3);          // Trend smoothing
+    public static final double FORECAST_GAMMA = doubleParam("FORECAST_GAMMA", 0.2);        // Seasonal smoothing
+    public static final int FORECAST_SEASON_LENGTH = intParam("FORECAST_SEASON_LENGTH", 0); // Scheduling intervals per season, 0 for no seasonal term
+    public static final int FORECAST_HORIZON = intParam("FORECAST_HORIZON", 3);            // Scheduling intervals the forecast looks ahead
+    
+    // Output parameters
+    public static final String RESULTS_DIR = stringParam("RESULTS_DIR", "results");           // Directory for the summary and per-event CSV files
+    public static final int CONSOLE_REPORT_MAX_VMS = intParam("CONSOLE_REPORT_MAX_VMS", 100); // Console report is skipped above this many VMs
+    public static final int TRACE_LEVEL = intParam("TRACE_LEVEL", 2);                         // 0 off, 1 VM allocation/scaling/migration events, 2 also cloudlet returns
+    public static final boolean TRACE_CONSOLE = booleanParam("TRACE_CONSOLE", true);          // Print traced events as log lines
+    public static final String TRACE_FILE = stringParam("TRACE_FILE", "");                    // CSV file drained by a background thread, empty for none
+    public static final int TRACE_BUFFER_SIZE = intParam("TRACE_BUFFER_SIZE", 65536);         // Events buffered for the drain thread
+    public static final String TIME_SERIES_FILE = stringParam("TIME_SERIES_FILE", "timeseries.bin"); // Columnar per-tick metrics in RESULTS_DIR for the dashboard, empty for none
+    public static final int TIME_SERIES_CHUNK_ROWS = intParam("TIME_SERIES_CHUNK_ROWS", 1024); // Ticks buffered per chunk of the time-series file
+    public static final boolean PROFILE = booleanParam("PROFILE", false);                     // Time events and policy calls and sample the heap into SIMULATION_PROFILE
+    public static final double PROFILE_INTERVAL = doubleParam("PROFILE_INTERVAL", 10.0);      // Simulated seconds between heap and GC samples
+    
+    // Consolidation parameters
+    public static final double CONSOLIDATION_INTERVAL = doubleParam("CONSOLIDATION_INTERVAL", 10.0);                      // Time between consolidation rounds, 0 disables
+    public static final int MAX_MIGRATIONS_PER_ROUND = intParam("MAX_MIGRATIONS_PER_ROUND", 4);                           // Cap on migrations planned per round
+    public static final double CONSOLIDATION_UTILIZATION_CEILING = doubleParam("CONSOLIDATION_UTILIZATION_CEILING", 0.8); // Max MIPS share of a target host after packing
+    public static final int CONSOLIDATION_PARALLEL_THRESHOLD = intParam("CONSOLIDATION_PARALLEL_THRESHOLD", 1024);        // Host count above which placement search runs in parallel
+    
+    // Live migration parameters
+    public static final boolean LIVE_MIGRATION = booleanParam("LIVE_MIGRATION", true);                  // Model migrations as timed pre-copy transfers, false for instant moves
+    public static final double MIGRATION_DIRTY_RATE = doubleParam("MIGRATION_DIRTY_RATE", 0.05);        // Fraction of VM RAM dirtied per second at 100% CPU
+    public static final int MIGRATION_MAX_ROUNDS = intParam("MIGRATION_MAX_ROUNDS", 30);                // Pre-copy rounds before the stop-and-copy is forced
+    public static final double MIGRATION_STOP_COPY_SIZE = doubleParam("MIGRATION_STOP_COPY_SIZE", 50.0); // Dirty MB small enough to stop the VM and copy the rest
+    public static final double MIGRATION_BANDWIDTH_SHARE = doubleParam("MIGRATION_BANDWIDTH_SHARE", 0.5); // Share of the hosts' free bandwidth a migration uses
+    public static final double MIGRATION_SLOWDOWN = doubleParam("MIGRATION_SLOWDOWN", 0.1);             // Share of a VM's MIPS lost while it migrates
+    public static final double MIGRATION_PAYBACK_WINDOW = doubleParam("MIGRATION_PAYBACK_WINDOW", 20.0); // Seconds over which a scale-up migration must repay its cost
+    
+    // Energy parameters
+    public static final String PLACEMENT_MODE = stringParam("PLACEMENT_MODE", "spread");                  // "spread" onto the least utilized host, or "pack" onto active hosts to save energy
+    public static final double PACKING_UTILIZATION_CEILING = doubleParam("PACKING_UTILIZATION_CEILING", 1.0); // Max allocated MIPS share of an active host a VM is packed onto
+    public static final String POWER_MODEL = stringParam("POWER_MODEL", "linear");                        // "linear", "sqrt", "square", "cubic", "ibm-x5670" or "ibm-x5675"
+    public static final double HOST_MAX_POWER = doubleParam("HOST_MAX_POWER", 250.0);                     // Watts drawn by a fully utilized host
+    public static final double HOST_STATIC_POWER = doubleParam("HOST_STATIC_POWER", 0.7);                 // Share of HOST_MAX_POWER drawn by an idle active host
+    
+    private static Properties loadOverrides() {
+        Properties overrides = new Properties();
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("sim.")) {
+                overrides.setProperty(key.substring(4), System.getProperty(key));
+            }
+        }
+        ClassLoader loader = Constants.class.getClassLoader();
+        try (InputStream in = loader != null ? loader.getResourceAsStream(RUN_PARAMETERS_RESOURCE) : null) {
+            if (in != null) {
+                overrides.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return overrides;
+    }
+    
+    private static int intParam(String name, int defaultValue) {
+        String value = OVERRIDES.getProperty(name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+    
+    private static long longParam(String name, long defaultValue) {
+        String value = OVERRIDES.getProperty(name);
+        return value != null ? Long.parseLong(value.trim()) : defaultValue;
+    }
+    
+    private static double doubleParam(String name, double defaultValue) {
+        String value = OVERRIDES.getProperty(name);
+        return value != null ? Double.parseDouble(value.trim()) : defaultValue;
+    }
+    
+    private static boolean booleanParam(String name, boolean defaultValue) {
+        String value = OVERRIDES.getProperty(name);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+    
+    private static String stringParam(String name, String defaultValue) {
+        return OVERRIDES.getProperty(name, defaultValue);
+    }
+}
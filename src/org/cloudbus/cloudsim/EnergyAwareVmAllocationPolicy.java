@@ -0,0 +1,56 @@
+package org.cloudbus.cloudsim;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Auto-scaling policy that packs VMs to keep fewer hosts powered. New VMs, replicas and VMs
+ * that must move to grow go to the fullest active host whose allocated MIPS stay within the
+ * utilization ceiling, so an empty host is only switched on when no active one has room under
+ * it. The headroom left by the ceiling is what in-place scale-ups grow into; a smaller ceiling
+ * trades energy for fewer scale-up migrations. When no host fits under the ceiling the VM goes
+ * to the fullest host that fits at all.
+ */
+public class EnergyAwareVmAllocationPolicy extends AutoScalingVmAllocationPolicy {
+    private static final double EPSILON = 1e-9;
+
+    private final double utilizationCeiling;
+
+    public EnergyAwareVmAllocationPolicy(List<? extends Host> hostList, double utilizationCeiling) {
+        super(hostList, true);
+        if (utilizationCeiling <= 0 || utilizationCeiling > 1) {
+            throw new IllegalArgumentException("PACKING_UTILIZATION_CEILING must be in (0, 1]");
+        }
+        this.utilizationCeiling = utilizationCeiling;
+    }
+
+    /**
+     * Creates the policy selected by {@link Constants#PLACEMENT_MODE}.
+     */
+    public static AutoScalingVmAllocationPolicy create(String mode, List<? extends Host> hostList) {
+        if (mode.equalsIgnoreCase("pack")) {
+            return new EnergyAwareVmAllocationPolicy(hostList, Constants.PACKING_UTILIZATION_CEILING);
+        }
+        if (mode.equalsIgnoreCase("spread")) {
+            return new AutoScalingVmAllocationPolicy(hostList);
+        }
+        throw new IllegalArgumentException("Unknown placement mode: " + mode);
+    }
+
+    @Override
+    public String getName() {
+        return "EnergyAwareVmAllocationPolicy";
+    }
+
+    @Override
+    protected Host findHost(double totalMips, double maxMips, int ram, long bw, Host holder, Predicate<Host> suitable) {
+        Host host = super.findHost(totalMips, maxMips, ram, bw, holder,
+            candidate -> isWithinCeiling(candidate, totalMips) && suitable.test(candidate));
+        return host != null ? host : super.findHost(totalMips, maxMips, ram, bw, holder, suitable);
+    }
+
+    private boolean isWithinCeiling(Host host, double mips) {
+        double allocated = host.getTotalMips() - host.getVmScheduler().getAvailableMips();
+        return allocated + mips <= utilizationCeiling * host.getTotalMips() + EPSILON;
+    }
+}
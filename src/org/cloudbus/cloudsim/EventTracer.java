@@ -0,0 +1,255 @@
+package org.cloudbus.cloudsim;
+
+import java.nio.file.Paths;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured tracing of simulation events with primitive fields.
+ *
+ * Each event type has a level, and an event above {@link Constants#TRACE_LEVEL} returns
+ * after one field compare, before any argument is formatted or stored. Enabled events go to
+ * up to two sinks: the human-readable formatter, which prints the classic log lines through
+ * {@link Log}, and a preallocated single-producer ring buffer that a background thread drains
+ * into a CSV file. When the ring is full the simulation thread waits for the drain thread
+ * instead of dropping events.
+ */
+public final class EventTracer {
+    public static final int OFF = 0;
+    public static final int INFO = 1;  // VM allocations, scaling and migrations
+    public static final int DEBUG = 2; // Also every cloudlet return
+
+    private static final int ALLOCATE = 0;
+    private static final int SCALE = 1;
+    private static final int MIGRATE = 2;
+    private static final int CLOUDLET_RETURN = 3;
+    private static final String[] EVENT_NAMES = { "ALLOCATE", "SCALE", "MIGRATE", "CLOUDLET_RETURN" };
+    private static final String[] DIRECTIONS = { "", "up", "down" };
+
+    // Resources a scaling event changed, as a bit set
+    private static final int CPU = 1;
+    private static final int RAM = 2;
+    private static final int BW = 4;
+    private static final String[] RESOURCES = { "", "cpu", "ram", "cpu+ram", "bw", "cpu+bw", "ram+bw", "cpu+ram+bw" };
+
+    private static int level = Constants.TRACE_LEVEL;
+    private static boolean console = Constants.TRACE_CONSOLE;
+    private static EventTracer ring;
+
+    // Ring buffer columns, indexed by sequence & mask
+    private final int mask;
+    private final int[] type;
+    private final double[] time;
+    private final int[] vmId;
+    private final int[] cloudletId;
+    private final int[] oldPes;
+    private final int[] newPes;
+    private final int[] oldHost;
+    private final int[] newHost;
+    private final double[] value;
+    private final int[] direction; // Index into DIRECTIONS
+    private final int[] resources;
+    private final int[] oldRam;
+    private final int[] newRam;
+    private final long[] oldBw;
+    private final long[] newBw;
+    private volatile long head; // Next sequence to drain, written by the drain thread
+    private volatile long tail; // Next sequence to fill, written by the simulation thread
+    private volatile boolean closed;
+    private final ResultsWriter out;
+    private final Thread drainer;
+
+    private EventTracer(int capacity, ResultsWriter out) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        type = new int[size];
+        time = new double[size];
+        vmId = new int[size];
+        cloudletId = new int[size];
+        oldPes = new int[size];
+        newPes = new int[size];
+        oldHost = new int[size];
+        newHost = new int[size];
+        value = new double[size];
+        direction = new int[size];
+        resources = new int[size];
+        oldRam = new int[size];
+        newRam = new int[size];
+        oldBw = new long[size];
+        newBw = new long[size];
+        this.out = out;
+        out.append("Event,Time,VM_ID,Cloudlet_ID,Old_PEs,New_PEs,Old_Host,New_Host,Value,Direction,Resource,Old_RAM,New_RAM,Old_BW,New_BW\n");
+        drainer = new Thread(this::drainLoop, "event-tracer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Starts the drain thread if {@link Constants#TRACE_FILE} is set.
+     */
+    public static void start() {
+        if (level > OFF && !Constants.TRACE_FILE.isEmpty() && ring == null) {
+            ring = new EventTracer(Constants.TRACE_BUFFER_SIZE, ResultsWriter.toFile(Paths.get(Constants.TRACE_FILE)));
+        }
+    }
+
+    /**
+     * Drains every event traced so far, stops the drain thread and closes the trace file.
+     */
+    public static void shutdown() {
+        if (ring == null) return;
+        ring.closed = true;
+        LockSupport.unpark(ring.drainer);
+        try {
+            ring.drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ring.out.close();
+        ring = null;
+    }
+
+    public static void allocate(double time, int vmId, int hostId, int pes) {
+        if (level < INFO) return;
+        record(ALLOCATE, time, vmId, -1, pes, pes, -1, hostId, 0);
+    }
+
+    /**
+     * Traces a vertical scaling event: a change of PEs, RAM or BW, in place or with a migration.
+     */
+    public static void scale(AutoScalingVmAllocationPolicy.ScalingEvent event) {
+        if (level < INFO) return;
+        int changed = (event.oldPes != event.newPes ? CPU : 0) | (event.oldRam != event.newRam ? RAM : 0)
+            | (event.oldBw != event.newBw ? BW : 0);
+        record(SCALE, event.time, event.vmId, -1, event.oldPes, event.newPes, event.oldHostId, event.newHostId,
+            event.cpuUtilization, event.direction.equals("down") ? 2 : 1, changed,
+            event.oldRam, event.newRam, event.oldBw, event.newBw);
+    }
+
+    public static void migrate(double time, int vmId, int pes, int oldHostId, int newHostId) {
+        if (level < INFO) return;
+        record(MIGRATE, time, vmId, -1, pes, pes, oldHostId, newHostId, 0);
+    }
+
+    public static void cloudletReturn(double time, int cloudletId, int vmId, double responseTime) {
+        if (level < DEBUG) return;
+        record(CLOUDLET_RETURN, time, vmId, cloudletId, -1, -1, -1, -1, responseTime);
+    }
+
+    private static void record(int type, double time, int vmId, int cloudletId, int oldPes, int newPes,
+            int oldHost, int newHost, double value) {
+        record(type, time, vmId, cloudletId, oldPes, newPes, oldHost, newHost, value, 0, 0, -1, -1, -1, -1);
+    }
+
+    private static void record(int type, double time, int vmId, int cloudletId, int oldPes, int newPes,
+            int oldHost, int newHost, double value, int direction, int resources,
+            int oldRam, int newRam, long oldBw, long newBw) {
+        if (console) {
+            Log.printLine(format(type, time, vmId, cloudletId, oldPes, newPes, oldHost, newHost,
+                direction, resources, oldRam, newRam, oldBw, newBw));
+        }
+        if (ring != null) {
+            ring.put(type, time, vmId, cloudletId, oldPes, newPes, oldHost, newHost, value,
+                direction, resources, oldRam, newRam, oldBw, newBw);
+        }
+    }
+
+    /**
+     * Human-readable form of an event, as the components used to log it.
+     */
+    private static String format(int type, double time, int vmId, int cloudletId, int oldPes, int newPes,
+            int oldHost, int newHost, int direction, int resources, int oldRam, int newRam, long oldBw, long newBw) {
+        switch (type) {
+            case ALLOCATE:
+                return time + ": AutoScalingVmAllocationPolicy: VM #" + vmId + " has been allocated to host #" + newHost;
+            case SCALE:
+                boolean inPlace = oldHost == newHost;
+                StringBuilder line = new StringBuilder().append(time).append(": AutoScalingVmAllocationPolicy: VM #").append(vmId);
+                if (inPlace) {
+                    line.append(" has been scaled ");
+                } else {
+                    line.append(" has been migrated to host #").append(newHost).append(" and scaled ");
+                }
+                line.append(DIRECTIONS[direction]);
+                String separator = " ";
+                if ((resources & CPU) != 0) {
+                    appendChange(line.append(separator), "", inPlace, oldPes, newPes, " PEs");
+                    separator = ", ";
+                }
+                if ((resources & RAM) != 0) {
+                    appendChange(line.append(separator), "RAM ", inPlace, oldRam, newRam, " MB");
+                    separator = ", ";
+                }
+                if ((resources & BW) != 0) {
+                    appendChange(line.append(separator), "BW ", inPlace, oldBw, newBw, " Mbps");
+                }
+                return line.toString();
+            case MIGRATE:
+                return time + ": AutoScalingVmAllocationPolicy: VM #" + vmId + " has been migrated from host #" + oldHost
+                    + " to host #" + newHost;
+            default:
+                return String.format("%.3f: Broker: Cloudlet %d received", time, cloudletId);
+        }
+    }
+
+    private static void appendChange(StringBuilder line, String resource, boolean inPlace, long from, long to, String unit) {
+        line.append(resource);
+        if (inPlace) {
+            line.append("from ").append(from).append(unit).append(' ');
+        }
+        line.append("to ").append(to).append(unit);
+    }
+
+    private void put(int type, double time, int vmId, int cloudletId, int oldPes, int newPes,
+            int oldHost, int newHost, double value, int direction, int resources,
+            int oldRam, int newRam, long oldBw, long newBw) {
+        long sequence = tail;
+        while (sequence - head > mask) {
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(10_000);
+        }
+        int slot = (int) sequence & mask;
+        this.type[slot] = type;
+        this.time[slot] = time;
+        this.vmId[slot] = vmId;
+        this.cloudletId[slot] = cloudletId;
+        this.oldPes[slot] = oldPes;
+        this.newPes[slot] = newPes;
+        this.oldHost[slot] = oldHost;
+        this.newHost[slot] = newHost;
+        this.value[slot] = value;
+        this.direction[slot] = direction;
+        this.resources[slot] = resources;
+        this.oldRam[slot] = oldRam;
+        this.newRam[slot] = newRam;
+        this.oldBw[slot] = oldBw;
+        this.newBw[slot] = newBw;
+        tail = sequence + 1;
+    }
+
+    private void drainLoop() {
+        while (true) {
+            long available = tail;
+            long sequence = head;
+            if (sequence == available) {
+                if (closed && tail == sequence) {
+                    out.flush();
+                    return;
+                }
+                LockSupport.parkNanos(1_000_000);
+                continue;
+            }
+            for (; sequence < available; sequence++) {
+                int slot = (int) sequence & mask;
+                out.append(EVENT_NAMES[type[slot]]).append(',').append(time[slot]).append(',')
+                    .append(vmId[slot]).append(',').append(cloudletId[slot]).append(',')
+                    .append(oldPes[slot]).append(',').append(newPes[slot]).append(',')
+                    .append(oldHost[slot]).append(',').append(newHost[slot]).append(',')
+                    .append(value[slot]).append(',')
+                    .append(DIRECTIONS[direction[slot]]).append(',').append(RESOURCES[resources[slot]]).append(',')
+                    .append(oldRam[slot]).append(',').append(newRam[slot]).append(',')
+                    .append(oldBw[slot]).append(',').append(newBw[slot]).append('\n');
+            }
+            head = sequence;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Capacity index over the datacenter hosts used to answer "least-utilized suitable host"
+ * queries without scanning every host and every VM on it.
+ *
+ * Hosts are kept in a segment tree in host-list order. Each node stores the maximum free
+ * MIPS, PE capacity, RAM and BW of its range (to prune ranges that cannot fit a VM) and the
+ * position of its least-utilized host, ties broken by position. A host's utilization is the
+ * requested MIPS of its VMs over its total MIPS, as in the linear scan the index replaces, so
+ * a query returns exactly the host that scan with a strict "less than" comparison would pick.
+ *
+ * With packing on, the order is reversed to favour consolidation: hosts holding VMs come
+ * before empty ones and, among them, the most utilized comes first, so queries return the
+ * fullest active host that fits and an empty host is only chosen when none does. Packing
+ * ranks hosts by the share of their MIPS allocated to VMs and reservations instead, as a
+ * time-shared VM requests almost no MIPS while its cloudlets run.
+ *
+ * The per-dimension maxima only prune ranges in which no host can fit the VM; a host inside a
+ * surviving range still has to pass the caller's suitability check, which looks at the free
+ * capacity of each PE. A query is logarithmic when the best host fits, but when the hosts
+ * that look large enough fail that check it visits them one by one and costs O(hosts) in the
+ * worst case, like the scan.
+ *
+ * The index is refreshed per host whenever the policy creates, resizes, moves or destroys a
+ * VM on it. Requested MIPS of a VM also drops once the datacenter finishes instantiating it,
+ * so without packing hosts holding VMs that are still being instantiated are re-read lazily
+ * before each query.
+ */
+public class HostCapacityIndex {
+    private final List<Host> hosts;
+    private final Map<Host, Integer> positions;
+    private final int size;
+    private final boolean packing;
+
+    // Per-host state, indexed by position in the host list
+    private final double[] utilization;
+    private final double[] freeMips;
+    private final double[] peCapacity;
+    private final int[] freeRam;
+    private final long[] freeBw;
+    private final boolean[] active;
+
+    // Segment tree nodes, leaves start at index size
+    private final double[] maxFreeMips;
+    private final double[] maxPeCapacity;
+    private final int[] maxFreeRam;
+    private final long[] maxFreeBw;
+    private final int[] best;
+
+    private final Set<Integer> instantiating;
+
+    public HostCapacityIndex(List<? extends Host> hostList) {
+        this(hostList, false);
+    }
+
+    public HostCapacityIndex(List<? extends Host> hostList, boolean packing) {
+        this.packing = packing;
+        this.hosts = new ArrayList<>(hostList);
+        this.positions = new HashMap<>();
+        int n = 1;
+        while (n < Math.max(1, hosts.size())) {
+            n <<= 1;
+        }
+        this.size = n;
+        this.utilization = new double[hosts.size()];
+        this.freeMips = new double[hosts.size()];
+        this.peCapacity = new double[hosts.size()];
+        this.freeRam = new int[hosts.size()];
+        this.freeBw = new long[hosts.size()];
+        this.active = new boolean[hosts.size()];
+        this.maxFreeMips = new double[2 * n];
+        this.maxPeCapacity = new double[2 * n];
+        this.maxFreeRam = new int[2 * n];
+        this.maxFreeBw = new long[2 * n];
+        this.best = new int[2 * n];
+        this.instantiating = new TreeSet<>();
+
+        Arrays.fill(best, -1);
+        for (int i = 0; i < hosts.size(); i++) {
+            positions.put(hosts.get(i), i);
+            readHost(i);
+            writeLeaf(i);
+        }
+        for (int node = size - 1; node > 0; node--) {
+            pull(node);
+        }
+    }
+
+    /**
+     * Re-reads the capacity of a host after a VM was created on or removed from it.
+     */
+    public void update(Host host) {
+        Integer position = positions.get(host);
+        if (position == null) return;
+
+        readHost(position);
+        writeLeaf(position);
+        for (int node = (position + size) >> 1; node > 0; node >>= 1) {
+            pull(node);
+        }
+    }
+
+    /**
+     * Finds the least-utilized host (the most utilized one when packing) accepted by
+     * {@code suitable}. The requested amounts are only used to prune hosts that cannot possibly
+     * pass the predicate; {@code holder} is the host already provisioning the VM (if any), whose
+     * own allocation counts as free and which is therefore checked without pruning.
+     */
+    public Host findHost(double totalMips, double maxMips, int ram, long bw, Host holder, Predicate<Host> suitable) {
+        refreshInstantiating();
+
+        int found = search(1, totalMips, maxMips, ram, bw, suitable, -1);
+
+        Integer holderPosition = holder != null ? positions.get(holder) : null;
+        if (holderPosition != null && suitable.test(holder) && isBetter(holderPosition, found)) {
+            found = holderPosition;
+        }
+        return found >= 0 ? hosts.get(found) : null;
+    }
+
+    public double getUtilization(Host host) {
+        Integer position = positions.get(host);
+        return position != null ? utilization[position] : 0.0;
+    }
+
+    private int search(int node, double totalMips, double maxMips, int ram, long bw,
+                       Predicate<Host> suitable, int bestSoFar) {
+        int candidate = best[node];
+        if (candidate < 0 || !isBetter(candidate, bestSoFar)) return bestSoFar;
+        if (maxFreeMips[node] < totalMips || maxPeCapacity[node] < maxMips
+                || maxFreeRam[node] < ram || maxFreeBw[node] < bw) {
+            return bestSoFar;
+        }
+        if (suitable.test(hosts.get(candidate))) return candidate;
+        if (node >= size) return bestSoFar;
+
+        // Visit the child holding the better host first so the other one is usually pruned
+        int first = node << 1;
+        int second = first + 1;
+        if (best[second] >= 0 && isBetter(best[second], best[first])) {
+            first = second;
+            second = node << 1;
+        }
+        bestSoFar = search(first, totalMips, maxMips, ram, bw, suitable, bestSoFar);
+        return search(second, totalMips, maxMips, ram, bw, suitable, bestSoFar);
+    }
+
+    private boolean isBetter(int position, int other) {
+        if (other < 0) return true;
+        if (packing && active[position] != active[other]) {
+            return active[position];
+        }
+        if (utilization[position] != utilization[other]) {
+            return packing
+                ? utilization[position] > utilization[other]
+                : utilization[position] < utilization[other];
+        }
+        return position < other;
+    }
+
+    private void refreshInstantiating() {
+        if (instantiating.isEmpty()) return;
+        for (Integer position : new ArrayList<>(instantiating)) {
+            update(hosts.get(position));
+        }
+    }
+
+    private void readHost(int position) {
+        Host host = hosts.get(position);
+        freeMips[position] = host.getVmScheduler().getAvailableMips();
+        active[position] = PowerMeteredHost.isInUse(host);
+        peCapacity[position] = host.getVmScheduler().getPeCapacity();
+        freeRam[position] = host.getRamProvisioner().getAvailableRam();
+        freeBw[position] = host.getBwProvisioner().getAvailableBw();
+
+        if (packing) {
+            utilization[position] = (host.getTotalMips() - freeMips[position]) / host.getTotalMips();
+            return;
+        }
+        double usedMips = 0;
+        boolean pending = false;
+        for (Vm vm : host.getVmList()) {
+            usedMips += vm.getCurrentRequestedTotalMips();
+            pending |= vm.isBeingInstantiated();
+        }
+        utilization[position] = usedMips / host.getTotalMips();
+
+        if (pending) {
+            instantiating.add(position);
+        } else {
+            instantiating.remove(position);
+        }
+    }
+
+    private void writeLeaf(int position) {
+        int node = position + size;
+        maxFreeMips[node] = freeMips[position];
+        maxPeCapacity[node] = peCapacity[position];
+        maxFreeRam[node] = freeRam[position];
+        maxFreeBw[node] = freeBw[position];
+        best[node] = position;
+    }
+
+    private void pull(int node) {
+        int left = node << 1;
+        int right = left + 1;
+        maxFreeMips[node] = Math.max(maxFreeMips[left], maxFreeMips[right]);
+        maxPeCapacity[node] = Math.max(maxPeCapacity[left], maxPeCapacity[right]);
+        maxFreeRam[node] = Math.max(maxFreeRam[left], maxFreeRam[right]);
+        maxFreeBw[node] = Math.max(maxFreeBw[left], maxFreeBw[right]);
+
+        int l = best[left];
+        int r = best[right];
+        if (l < 0) {
+            best[node] = r;
+        } else if (r < 0) {
+            best[node] = l;
+        } else {
+            best[node] = isBetter(r, l) ? r : l;
+        }
+    }
+}
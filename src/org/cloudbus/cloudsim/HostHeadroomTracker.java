@@ -0,0 +1,94 @@
+package org.cloudbus.cloudsim;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Headroom of each host, the share of its CPU, RAM and BW not allocated to any VM, sampled
+ * at the monitoring ticks. Keeps the time-weighted mean and the minimum per host and resource
+ * in primitive columns indexed by position in the host list, so memory does not grow with
+ * simulated time. A sample's headroom is taken to hold until the next sample.
+ */
+public class HostHeadroomTracker {
+    public static final int CPU = 0;
+    public static final int RAM = 1;
+    public static final int BW = 2;
+    private static final int RESOURCES = 3;
+
+    private final List<? extends Host> hosts;
+    private final double[] last;     // Headroom at the last sample, [host * RESOURCES + resource]
+    private final double[] weighted; // Headroom integrated over time since the first sample
+    private final double[] min;
+    private double firstTime = Double.NaN;
+    private double lastTime = Double.NaN;
+
+    public HostHeadroomTracker(List<? extends Host> hosts) {
+        this.hosts = hosts;
+        this.last = new double[hosts.size() * RESOURCES];
+        this.weighted = new double[hosts.size() * RESOURCES];
+        this.min = new double[hosts.size() * RESOURCES];
+        Arrays.fill(min, 1.0);
+    }
+
+    /**
+     * Samples every host at {@code time}. Samples at the same time replace each other.
+     */
+    public void sample(double time) {
+        if (Double.isNaN(firstTime)) {
+            firstTime = time;
+        } else if (time > lastTime) {
+            double elapsed = time - lastTime;
+            for (int i = 0; i < last.length; i++) {
+                weighted[i] += last[i] * elapsed;
+            }
+        }
+        lastTime = time;
+
+        for (int h = 0; h < hosts.size(); h++) {
+            Host host = hosts.get(h);
+            int base = h * RESOURCES;
+            last[base + CPU] = host.getVmScheduler().getAvailableMips() / host.getTotalMips();
+            last[base + RAM] = (double) host.getRamProvisioner().getAvailableRam() / host.getRam();
+            last[base + BW] = (double) host.getBwProvisioner().getAvailableBw() / host.getBw();
+            for (int r = 0; r < RESOURCES; r++) {
+                min[base + r] = Math.min(min[base + r], last[base + r]);
+            }
+        }
+    }
+
+    public int getHostCount() {
+        return hosts.size();
+    }
+
+    public Host getHost(int position) {
+        return hosts.get(position);
+    }
+
+    /**
+     * Time-weighted mean headroom of a host, its last sample if all samples came at one time.
+     */
+    public double getMean(int position, int resource) {
+        int i = position * RESOURCES + resource;
+        double span = lastTime - firstTime;
+        return span > 0 ? weighted[i] / span : last[i];
+    }
+
+    /**
+     * Lowest headroom sampled on a host, 1 before the first sample.
+     */
+    public double getMin(int position, int resource) {
+        return min[position * RESOURCES + resource];
+    }
+
+    /**
+     * Mean headroom of a resource over all hosts.
+     */
+    public double getDatacenterMean(int resource) {
+        if (hosts.isEmpty()) return 0;
+        double total = 0;
+        for (int h = 0; h < hosts.size(); h++) {
+            total += getMean(h, resource);
+        }
+        return total / hosts.size();
+    }
+}
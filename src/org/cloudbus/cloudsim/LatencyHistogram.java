@@ -0,0 +1,83 @@
+package org.cloudbus.cloudsim;
+
+import java.util.Arrays;
+
+/**
+ * Log-bucketed histogram of latencies in seconds, in the style of HdrHistogram.
+ *
+ * Values are recorded in microseconds. Values below 2^SUB_BUCKET_BITS fall in exact buckets;
+ * larger values fall in one of 2^(SUB_BUCKET_BITS-1) linear sub-buckets of their power-of-two
+ * range, which bounds the relative error of a percentile to below 1%. The count array only
+ * grows up to the bucket of the largest value seen (about 6,000 buckets for a century), so
+ * memory stays fixed no matter how many values are recorded.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final double UNITS_PER_SECOND = 1_000_000.0;
+
+    private long[] counts = new long[SUB_BUCKET_COUNT];
+    private long totalCount;
+    private double sum;
+    private double max;
+
+    public void record(double seconds) {
+        if (seconds < 0 || Double.isNaN(seconds)) return;
+        long value = Math.round(seconds * UNITS_PER_SECOND);
+        int index = bucketIndex(value);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length + SUB_BUCKET_HALF));
+        }
+        counts[index]++;
+        totalCount++;
+        sum += seconds;
+        max = Math.max(max, seconds);
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public double getMean() {
+        return totalCount > 0 ? sum / totalCount : 0;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Value at the given percentile (0-100), as the highest value of the bucket holding it,
+     * capped at the largest recorded value.
+     */
+    public double getPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(max, highestEquivalentValue(i) / UNITS_PER_SECOND);
+            }
+        }
+        return max;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_HALF) / SUB_BUCKET_HALF;
+        long subBucket = index - shift * SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
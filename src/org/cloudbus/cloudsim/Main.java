@@ -3,12 +3,11 @@ package org.cloudbus.cloudsim;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.power.models.PowerModel;
 import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -17,61 +16,220 @@ public class Main {
     private static List<Cloudlet> cloudletList;
     private static List<Vm> vmList;
     private static AutoScalingVmAllocationPolicy allocationPolicy;
-    private static List<Host> hostList;
+    private static List<PowerMeteredHost> hostList;
     private static Map<Integer, Double> vmStartTime;
     private static Map<Integer, Double> vmEndTime;
+    private static WorkloadSource workload; // Streamed trace or arrival-process workload, null for the batch one
+    private static String workloadName = "batch";
+    private static int cloudletsArrived;
+    private static int cloudletsRejected;
+    private static int maxQueueLength;
+    private static double totalQueueDelay;
+    private static double maxQueueDelay;
+    private static int cloudletsReleased;
+    private static int cloudletsExecuted;
+    private static double totalExecutionTime;
+    private static long simulatedEvents;
+    private static int samplingTicks;
+    private static long vmSamples;
+    private static Map<Integer, Integer> cloudletsPerVm;
+    private static Map<Integer, Double> cloudletArrivalTimes; // Arrival times of streamed cloudlets in flight
+    private static LatencyHistogram waitTimes;
+    private static LatencyHistogram responseTimes;
+    private static Map<Integer, LatencyHistogram> vmWaitTimes;
+    private static Map<Integer, LatencyHistogram> vmResponseTimes;
+    private static ResultsWriter completionLog;  // One row per returned cloudlet
+    private static ResultsWriter scalingLog;     // One row per scaling event
+    private static ResultsWriter utilizationLog; // One row per VM per tick
+    private static HostHeadroomTracker headroom;
+    private static TimeSeriesWriter timeSeries;  // One row per tick, datacenter columns then one per host
+    private static double[] timeSeriesRow;
+
+    private static final double[] REPORTED_PERCENTILES = { 50, 95, 99, 99.9 };
 
     private static final int CLOUDLET_UPDATE = 987654321;
     private static final int SIMULATION_END = 987654322;
+    private static final int WORKLOAD_ARRIVAL = 987654324;
 
     public static void main(String[] args) {
+        try {
+            run(args);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.printLine("Simulation terminated due to an error");
+        }
+    }
+
+    /**
+     * Runs one simulation and writes its results. Unlike {@link #main}, a run that fails is
+     * reported to the caller by the exception that stopped it.
+     */
+    public static void run(String[] args) throws Exception {
         Log.printLine("Starting Auto-Scaling and Load-Aware VM Allocation Simulation...");
         Log.printLine("Initialising...");
         Log.printLine("Simulation will run for: " + Constants.SIMULATION_LIMIT + " seconds");
 
-        try {
-            CloudSim.init(1, Calendar.getInstance(), false);
-            
-            vmStartTime = new HashMap<>();
-            vmEndTime = new HashMap<>();
+        CloudSim.init(1, Calendar.getInstance(), false);
+        
+        vmStartTime = new HashMap<>();
+        vmEndTime = new HashMap<>();
+        cloudletsPerVm = new HashMap<>();
+        cloudletArrivalTimes = new HashMap<>();
+        waitTimes = new LatencyHistogram();
+        responseTimes = new LatencyHistogram();
+        vmWaitTimes = new TreeMap<>();
+        vmResponseTimes = new TreeMap<>();
+        // Counters are reset so several runs can share one JVM, e.g. in benchmarks
+        workload = null;
+        workloadName = "batch";
+        cloudletsArrived = cloudletsRejected = cloudletsReleased = cloudletsExecuted = maxQueueLength = 0;
+        simulatedEvents = samplingTicks = 0;
+        vmSamples = 0;
+        totalQueueDelay = maxQueueDelay = totalExecutionTime = 0;
+        String traceFile = args.length > 0 ? args[0] : Constants.WORKLOAD_TRACE_FILE;
+        openEventLogs();
+        EventTracer.start();
 
-            Datacenter datacenter = createDatacenter("Datacenter_1");
-            DatacenterBroker broker = createBroker();
-            int brokerId = broker.getId();
+        ConsolidatingDatacenter datacenter = createDatacenter("Datacenter_1");
+        openTimeSeries();
+        DatacenterBroker broker = createBroker();
+        int brokerId = broker.getId();
 
-            vmList = createVms(brokerId);
-            cloudletList = CloudletGenerator.createCloudlets(brokerId, Constants.CLOUDLETS);
+        vmList = createVms(brokerId);
+        broker.submitVmList(vmList);
 
-            broker.submitVmList(vmList);
+        if (!traceFile.isEmpty()) {
+            // Trace cloudlets are read and submitted as their arrival times come up
+            Log.printLine("Replaying workload trace: " + traceFile);
+            workload = CloudletGenerator.streamCloudlets(brokerId, Paths.get(traceFile));
+            workloadName = "trace";
+        } else if (!Constants.ARRIVAL_PROCESS.equalsIgnoreCase("none")) {
+            ArrivalProcess process = ArrivalProcess.create(Constants.ARRIVAL_PROCESS);
+            Log.printLine("Generating open-loop arrivals: " + process.getName());
+            workload = new ArrivalProcessWorkload(process, brokerId, 0);
+            workloadName = process.getName();
+        } else {
+            cloudletList = CloudletGenerator.createCloudlets(brokerId, Constants.CLOUDLETS);
             broker.submitCloudletList(cloudletList);
+        }
 
-            // Schedule end of simulation after a specific time
-            broker.schedule(broker.getId(), Constants.SIMULATION_LIMIT, SIMULATION_END);
-            
-            CloudSim.startSimulation();
+        // Schedule end of simulation after a specific time
+        broker.schedule(broker.getId(), Constants.SIMULATION_LIMIT, SIMULATION_END);
+        
+        SimulationProfiler.nameTag(CLOUDLET_UPDATE, "CLOUDLET_UPDATE");
+        SimulationProfiler.nameTag(SIMULATION_END, "SIMULATION_END");
+        SimulationProfiler.nameTag(WORKLOAD_ARRIVAL, "WORKLOAD_ARRIVAL");
+        SimulationProfiler.nameTag(ConsolidatingDatacenter.CONSOLIDATE, "CONSOLIDATE");
+        SimulationProfiler.nameTag(ConsolidatingDatacenter.MIGRATION_COMPLETE, "MIGRATION_COMPLETE");
+        SimulationProfiler.begin();
+        CloudSim.startSimulation();
+        SimulationProfiler.end();
+        simulatedEvents += datacenter.getEventsProcessed();
 
-            List<Cloudlet> finishedCloudlets = broker.getCloudletReceivedList();
-            CloudSim.stopSimulation();
+        CloudSim.stopSimulation();
+        EventTracer.shutdown();
+        if (workload != null) {
+            workload.close();
+        }
+        completionLog.close();
+        scalingLog.close();
+        utilizationLog.close();
+        timeSeries.close();
 
-            // Generate and save results
-            StringBuilder consoleOutput = new StringBuilder();
-            StringBuilder csvOutput = new StringBuilder();
-            
-            generateResults(finishedCloudlets, consoleOutput, csvOutput);
-            
-            // Only write CSV file
-            writeResultsToCsv(csvOutput.toString());
-            
-            Log.printLine("Simulation completed successfully at time: " + CloudSim.clock());
-            Log.printLine("Results saved to results/simulation_results.csv");
-        } catch (Exception e) {
-            e.printStackTrace();
-            Log.printLine("Simulation terminated due to an error");
+        // Generate and save the summary; the console report is skipped for large runs
+        boolean printReport = !Log.isDisabled() && vmList.size() <= Constants.CONSOLE_REPORT_MAX_VMS;
+        try (ResultsWriter consoleOutput = printReport ? ResultsWriter.toStream(Log.getOutput()) : ResultsWriter.discarding();
+             ResultsWriter csvOutput = ResultsWriter.toFile(Paths.get(Constants.RESULTS_DIR, "simulation_results.csv"))) {
+            generateResults(consoleOutput, csvOutput);
+        }
+        
+        Log.printLine("Simulation completed successfully at time: " + CloudSim.clock());
+        Log.printLine("Results saved to " + Constants.RESULTS_DIR + "/simulation_results.csv");
+    }
+
+    /**
+     * Opens the per-event CSV logs. Rows are appended while the simulation runs and flushed
+     * every scheduling tick, so a run that dies early still leaves its output behind.
+     */
+    private static void openEventLogs() {
+        completionLog = ResultsWriter.toFile(Paths.get(Constants.RESULTS_DIR, "cloudlet_completions.csv"));
+        completionLog.append("Cloudlet_ID,VM_ID,Arrival_Time,Start_Time,Finish_Time,Wait_Time,Response_Time\n");
+        scalingLog = ResultsWriter.toFile(Paths.get(Constants.RESULTS_DIR, "scaling_events.csv"));
+        scalingLog.append("Time,VM_ID,Direction,CPU_Utilization,Old_PEs,New_PEs,Old_Host,New_Host,Forecast_Utilization,Avoided_Saturation_Time,Resource,Old_RAM,New_RAM,Old_BW,New_BW\n");
+        utilizationLog = ResultsWriter.toFile(Paths.get(Constants.RESULTS_DIR, "utilization_samples.csv"));
+        utilizationLog.append("Time,VM_ID,PEs,CPU_Utilization,RAM_Utilization,BW_Utilization\n");
+    }
+
+    /**
+     * Opens the per-tick time-series file read by the dashboard. Its columns are the datacenter
+     * totals followed by the CPU utilization of each host, so it is opened once the hosts exist.
+     */
+    private static void openTimeSeries() {
+        if (Constants.TIME_SERIES_FILE.isEmpty()) {
+            timeSeries = TimeSeriesWriter.discarding();
+            return;
+        }
+        List<String> columns = new ArrayList<>(Arrays.asList("Active_Hosts", "Host_CPU_Utilization", "Allocated_PEs",
+            "VMs", "Queue_Depth", "Running_Cloudlets", "Mean_VM_CPU_Utilization", "Power_W"));
+        for (Host host : hostList) {
+            columns.add("Host_" + host.getId() + "_CPU");
+        }
+        timeSeriesRow = new double[columns.size()];
+        timeSeries = TimeSeriesWriter.toFile(Paths.get(Constants.RESULTS_DIR, Constants.TIME_SERIES_FILE),
+            columns, Constants.TIME_SERIES_CHUNK_ROWS);
+    }
+
+    /**
+     * Appends a tick's row to the time series. {@code vms} is the broker's VM list, replicas
+     * included. The VM utilization is the mean of the VMs sampled at this tick, NaN if none was.
+     */
+    private static void recordTimeSeries(double now, List<? extends Vm> vms, int queueDepth, double[] utilizationSamples) {
+        if (!timeSeries.isEnabled()) return;
+        int activeHosts = 0;
+        double usedMips = 0;
+        double totalMips = 0;
+        double power = 0;
+        int column = 8;
+        for (PowerMeteredHost host : hostList) {
+            if (host.isActive()) activeHosts++;
+            usedMips += host.getUtilizationMips();
+            totalMips += host.getTotalMips();
+            power += host.getCurrentPower();
+            timeSeriesRow[column++] = host.getUtilizationOfCpu();
         }
+        int pes = 0;
+        int running = 0;
+        for (Vm vm : vms) {
+            pes += vm.getNumberOfPes();
+            running += vm.getCloudletScheduler().runningCloudlets();
+        }
+        double utilizationSum = 0;
+        int sampled = 0;
+        for (double utilization : utilizationSamples) {
+            if (Double.isNaN(utilization)) continue;
+            utilizationSum += utilization;
+            sampled++;
+        }
+        timeSeriesRow[0] = activeHosts;
+        timeSeriesRow[1] = totalMips > 0 ? usedMips / totalMips : 0;
+        timeSeriesRow[2] = pes;
+        timeSeriesRow[3] = vms.size();
+        timeSeriesRow[4] = queueDepth;
+        timeSeriesRow[5] = running;
+        timeSeriesRow[6] = sampled > 0 ? utilizationSum / sampled : Double.NaN;
+        timeSeriesRow[7] = power;
+        timeSeries.append(now, timeSeriesRow);
+    }
+
+    private static void flushEventLogs() {
+        completionLog.flush();
+        scalingLog.flush();
+        utilizationLog.flush();
     }
 
-    private static Datacenter createDatacenter(String name) {
+    private static ConsolidatingDatacenter createDatacenter(String name) {
         hostList = new ArrayList<>();
+        PowerModel powerModel = PowerMeteredHost.createPowerModel(Constants.POWER_MODEL);
 
         for (int i = 0; i < Constants.HOSTS; i++) {
             List<Pe> peList = new ArrayList<>();
@@ -79,17 +237,27 @@ public class Main {
                 peList.add(new Pe(j, new PeProvisionerSimple(Constants.HOST_MIPS)));
             }
 
-            hostList.add(new Host(
+            hostList.add(new PowerMeteredHost(
                 i,
                 new RamProvisionerSimple(Constants.HOST_RAM),
                 new BwProvisionerSimple(Constants.HOST_BW),
                 Constants.HOST_STORAGE,
                 peList,
-                new VmSchedulerTimeShared(peList)
+                new VmSchedulerTimeShared(peList),
+                powerModel
             ));
         }
 
-        allocationPolicy = new AutoScalingVmAllocationPolicy(hostList);
+        allocationPolicy = EnergyAwareVmAllocationPolicy.create(Constants.PLACEMENT_MODE, hostList);
+        allocationPolicy.setScalingEventListener(event -> scalingLog
+            .append(event.time).append(',').append(event.vmId).append(',')
+            .append(event.direction).append(',').append(event.cpuUtilization).append(',')
+            .append(event.oldPes).append(',').append(event.newPes).append(',')
+            .append(event.oldHostId).append(',').append(event.newHostId).append(',')
+            .append(event.forecastUtilization).append(',').append(event.avoidedSaturationTime).append(',')
+            .append(event.resource).append(',').append(event.oldRam).append(',').append(event.newRam).append(',')
+            .append(event.oldBw).append(',').append(event.newBw).append('\n'));
+        headroom = new HostHeadroomTracker(hostList);
 
         DatacenterCharacteristics characteristics = new DatacenterCharacteristics(
             "x86", "Linux", "Xen",
@@ -98,7 +266,8 @@ public class Main {
         );
 
         try {
-            return new Datacenter(name, characteristics, allocationPolicy, new LinkedList<>(), Constants.SCHEDULING_INTERVAL);
+            return new ConsolidatingDatacenter(name, characteristics, allocationPolicy, new LinkedList<>(),
+                Constants.SCHEDULING_INTERVAL, Constants.CONSOLIDATION_INTERVAL);
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -112,32 +281,345 @@ public class Main {
                 public void processOtherEvent(SimEvent ev) {
                     if (ev.getTag() == CLOUDLET_UPDATE) {
                         updateVmUtilization();
-                        // Only schedule next update if simulation hasn't ended
-                        if (CloudSim.clock() < Constants.SIMULATION_LIMIT) {
+                        flushEventLogs();
+                        if (adaptive) {
+                            pendingTicks.remove(CloudSim.clock());
+                            scheduleTick(Math.min(sampler.nextCheckTime(),
+                                replicas.nextRetirementTime(Constants.REPLICA_IDLE_TIME)));
+                        } else if (CloudSim.clock() < Constants.SIMULATION_LIMIT) {
+                            // Only schedule next update if simulation hasn't ended
                             schedule(getId(), Constants.SCHEDULING_INTERVAL, CLOUDLET_UPDATE);
                         }
+                    } else if (ev.getTag() == WORKLOAD_ARRIVAL) {
+                        releaseArrivals();
                     }
                 }
 
+                private boolean streaming = false;
+                private final boolean adaptive = Constants.SAMPLING_MODE.equalsIgnoreCase("adaptive");
+                private final AdaptiveSampler sampler = new AdaptiveSampler();
+                // Times of the CLOUDLET_UPDATE events scheduled in the adaptive mode
+                private final NavigableSet<Double> pendingTicks = new TreeSet<>();
+                private final SubmissionQueue submissionQueue = new SubmissionQueue(Constants.SUBMISSION_QUEUE_CAPACITY);
+                // Streamed cloudlets dispatched and not yet returned, indexed by VM id
+                private int[] inFlight = new int[0];
+                private final ReplicaRegistry replicas = allocationPolicy.getReplicaRegistry();
+                private final Map<Integer, Vm> pendingReplicas = new HashMap<>(); // Requested, not yet acknowledged
+                private int nextReplicaId = Constants.VMS;
+
+                @Override
+                protected void submitCloudlets() {
+                    int submitted = getCloudletSubmittedList().size();
+                    super.submitCloudlets();
+                    List<Cloudlet> submittedList = getCloudletSubmittedList();
+                    for (int i = submitted; i < submittedList.size(); i++) {
+                        vmStartTime.putIfAbsent(submittedList.get(i).getVmId(), CloudSim.clock());
+                        cloudletsArrived++;
+                        cloudletsReleased++;
+                    }
+
+                    // Start streaming once the VMs exist
+                    if (workload != null && !streaming) {
+                        streaming = true;
+                        releaseArrivals();
+                    }
+                }
+
+                /**
+                 * Queues every cloudlet whose arrival time has come, dispatches what the VMs can take
+                 * and schedules a wake-up for the next arrival. Arrivals that find the submission queue
+                 * full are rejected. Streamed cloudlets are not kept in the broker's lists.
+                 */
+                private void releaseArrivals() {
+                    double now = CloudSim.clock();
+                    while (workload.nextArrivalTime() <= now) {
+                        double arrivalTime = workload.nextArrivalTime();
+                        Cloudlet cloudlet = workload.next();
+                        cloudletsArrived++;
+                        if (!submissionQueue.offer(cloudlet, arrivalTime)) {
+                            cloudletsRejected++;
+                        }
+                    }
+                    maxQueueLength = Math.max(maxQueueLength, submissionQueue.size());
+                    dispatchQueued();
+
+                    double next = workload.nextArrivalTime();
+                    if (next != Double.MAX_VALUE && next < Constants.SIMULATION_LIMIT) {
+                        schedule(getId(), next - now, WORKLOAD_ARRIVAL);
+                    }
+                }
+
+                /**
+                 * Sends queued cloudlets in arrival order to the VM with the most free slots. A VM takes
+                 * {@link Constants#CLOUDLETS_PER_PE} cloudlets per PE at a time, so scaling a VM up lets
+                 * the queue drain faster. Replicas take part like any other VM, so the cloudlets a
+                 * saturated VM cannot take go to the least loaded replica.
+                 */
+                private void dispatchQueued() {
+                    while (!submissionQueue.isEmpty()) {
+                        Vm vm = leastLoadedVm();
+                        if (vm == null) return;
+
+                        double arrivalTime = submissionQueue.peekArrivalTime();
+                        double queueDelay = CloudSim.clock() - arrivalTime;
+                        totalQueueDelay += queueDelay;
+                        maxQueueDelay = Math.max(maxQueueDelay, queueDelay);
+
+                        Cloudlet cloudlet = submissionQueue.poll();
+                        cloudletArrivalTimes.put(cloudlet.getCloudletId(), arrivalTime);
+                        cloudlet.setVmId(vm.getId());
+                        sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+                        inFlight[vm.getId()]++;
+                        replicas.markBusy(vm.getId());
+                        wake(vm);
+                        cloudletsSubmitted++;
+                        cloudletsReleased++;
+                        vmStartTime.putIfAbsent(vm.getId(), CloudSim.clock());
+                    }
+                }
+
+                private Vm leastLoadedVm() {
+                    Vm best = null;
+                    double bestLoad = 1.0;
+                    for (Vm vm : getVmsCreatedList()) {
+                        int id = vm.getId();
+                        if (inFlight.length <= id) {
+                            inFlight = Arrays.copyOf(inFlight, Math.max(id + 1, inFlight.length * 2));
+                        }
+                        double load = (double) inFlight[id] / (vm.getNumberOfPes() * Constants.CLOUDLETS_PER_PE);
+                        if (load < bestLoad) {
+                            best = vm;
+                            bestLoad = load;
+                        }
+                    }
+                    return best;
+                }
+
                 @Override
                 public void startEntity() {
                     super.startEntity();
-                    schedule(getId(), Constants.SCHEDULING_INTERVAL, CLOUDLET_UPDATE);
+                    if (adaptive) {
+                        for (Vm vm : vmList) {
+                            sampler.checkAt(vm.getId(), Constants.SCHEDULING_INTERVAL);
+                        }
+                        scheduleTick(Constants.SCHEDULING_INTERVAL);
+                    } else {
+                        schedule(getId(), Constants.SCHEDULING_INTERVAL, CLOUDLET_UPDATE);
+                    }
+                }
+
+                /**
+                 * Schedules a CLOUDLET_UPDATE at {@code time} unless one is already pending before it;
+                 * that one schedules the next tick again when it fires.
+                 */
+                private void scheduleTick(double time) {
+                    if (time > Constants.SIMULATION_LIMIT) return;
+                    if (pendingTicks.isEmpty() || time < pendingTicks.first()) {
+                        double now = CloudSim.clock();
+                        schedule(getId(), time - now, CLOUDLET_UPDATE);
+                        pendingTicks.add(now + (time - now));
+                    }
+                }
+
+                /**
+                 * Brings a VM's next utilization check forward after its load changed.
+                 */
+                private void wake(Vm vm) {
+                    if (!adaptive) return;
+                    scheduleTick(sampler.wake(vm.getId(), CloudSim.clock(), allocationPolicy.getNextScalingTime(vm)));
                 }
                 
+                // Utilization samples of one tick indexed by VM id, reused across ticks
+                private double[] utilizationSamples = new double[0];
+                private double[] ramSamples = new double[0];
+                private double[] bwSamples = new double[0];
+
+                /**
+                 * Samples the VMs due for a check, every VM in the fixed mode, and lets the policy
+                 * scale them. In the adaptive mode the sampler then schedules each sampled VM's next
+                 * check from its post-scaling state.
+                 */
                 private void updateVmUtilization() {
+                    int maxId = -1;
+                    for (Vm vm : vmList) {
+                        maxId = Math.max(maxId, vm.getId());
+                    }
+                    if (utilizationSamples.length <= maxId) {
+                        utilizationSamples = new double[maxId + 1];
+                        ramSamples = new double[maxId + 1];
+                        bwSamples = new double[maxId + 1];
+                    }
+                    Arrays.fill(utilizationSamples, Double.NaN);
+                    Arrays.fill(ramSamples, Double.NaN);
+                    Arrays.fill(bwSamples, Double.NaN);
+
+                    double now = CloudSim.clock();
+                    samplingTicks++;
                     for (Vm vm : vmList) {
-                        double simulationProgress = CloudSim.clock() / Constants.SIMULATION_LIMIT;
-                        double baseUtilization = 0.5 + Math.sin(simulationProgress * Math.PI) * 0.4;
-                        double randomFactor = 0.1 * (new Random().nextDouble() - 0.5);
-                        double utilization = Math.max(0.1, Math.min(0.95, baseUtilization + randomFactor));
-                        
-                        allocationPolicy.updateVmUtilization(vm, utilization);
+                        if (adaptive && !sampler.isDue(vm.getId(), now)) continue;
+                        if (vm.getHost() != null) {
+                            double utilization = measureCpuUtilization(vm, now);
+                            double ram = measureResourceUtilization(vm, now, true);
+                            double bw = measureResourceUtilization(vm, now, false);
+                            utilizationSamples[vm.getId()] = utilization;
+                            ramSamples[vm.getId()] = ram;
+                            bwSamples[vm.getId()] = bw;
+                            vmSamples++;
+                            utilizationLog.append(now).append(',').append(vm.getId()).append(',')
+                                .append(vm.getNumberOfPes()).append(',').append(utilization).append(',')
+                                .append(ram).append(',').append(bw).append('\n');
+                        } else if (adaptive) {
+                            // Not placed: nothing to sample until a cloudlet is sent to it
+                            sampler.recordSample(vm.getId(), now, 0, Double.POSITIVE_INFINITY, true);
+                        }
+                    }
+                    allocationPolicy.updateVmUtilization(utilizationSamples, ramSamples, bwSamples);
+
+                    if (adaptive) {
+                        for (Vm vm : vmList) {
+                            double utilization = utilizationSamples[vm.getId()];
+                            if (Double.isNaN(utilization)) continue;
+                            boolean idle = vm.getCloudletScheduler().runningCloudlets() == 0;
+                            sampler.recordSample(vm.getId(), now, utilization, allocationPolicy.getNextScalingTime(vm), idle);
+                            // An idle VM is not sampled again until it is due to shrink; a shrink
+                            // that was due but did not happen, e.g. while the VM migrates, is
+                            // retried on the next tick as in the fixed mode
+                            sampler.checkAt(vm.getId(), Math.max(now + Constants.SCHEDULING_INTERVAL,
+                                allocationPolicy.getNextScaleDownTime(vm)));
+                        }
+                    }
+
+                    // After the samples are recorded, as this changes the VM list
+                    if (Constants.MAX_REPLICAS > 0) {
+                        scaleOut(now);
+                        retireIdleReplicas(now);
+                    }
+
+                    headroom.sample(now);
+
+                    // Scale-ups add dispatch slots
+                    if (streaming) {
+                        dispatchQueued();
+                    }
+                    recordTimeSeries(now, vmList, submissionQueue.size(), utilizationSamples);
+                }
+
+                /**
+                 * Requests a replica for the service of every sampled VM the policy finds saturated
+                 * at MAX_VM_PES. The datacenter places it through the allocation policy like any
+                 * new VM, on the least utilized host that fits.
+                 */
+                private void scaleOut(double now) {
+                    List<Vm> saturated = new ArrayList<>();
+                    for (Vm vm : vmList) {
+                        if (!Double.isNaN(utilizationSamples[vm.getId()]) && allocationPolicy.isScaleOutCandidate(vm, now)) {
+                            saturated.add(vm);
+                        }
+                    }
+                    for (Vm vm : saturated) {
+                        // Another VM of the same service may have scaled it out already
+                        if (!allocationPolicy.isScaleOutCandidate(vm, now)) continue;
+                        Vm replica = createVm(nextReplicaId++, getId());
+                        replicas.addReplica(replicas.getServiceId(vm.getId()), replica.getId(), now);
+                        pendingReplicas.put(replica.getId(), replica);
+                        getVmList().add(replica);
+                        sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.VM_CREATE_ACK, replica);
                     }
                 }
+
+                /**
+                 * Adds a replica to the VMs cloudlets are dispatched to once it is placed, or forgets
+                 * it if no host could take it.
+                 */
+                private void replicaCreated(Vm replica, int datacenterId, boolean created) {
+                    double now = CloudSim.clock();
+                    if (!created) {
+                        Log.printLine(now + ": " + getName() + ": No host for replica VM #" + replica.getId());
+                        getVmList().remove(replica);
+                        replicas.removeReplica(replica.getId());
+                        return;
+                    }
+                    getVmsToDatacentersMap().put(replica.getId(), datacenterId);
+                    getVmsCreatedList().add(replica);
+                    replicas.activate(replica.getId(), now);
+                    allocationPolicy.recordReplicaEvent(replica, true);
+                    if (adaptive) {
+                        sampler.checkAt(replica.getId(), now + Constants.SCHEDULING_INTERVAL);
+                        scheduleTick(now + Constants.REPLICA_IDLE_TIME);
+                    }
+                    if (streaming) {
+                        dispatchQueued();
+                    }
+                }
+
+                /**
+                 * Destroys the replicas that have had no cloudlets for REPLICA_IDLE_TIME.
+                 */
+                private void retireIdleReplicas(double now) {
+                    List<Vm> idle = new ArrayList<>();
+                    for (Vm vm : getVmsCreatedList()) {
+                        // NaN unless an idle replica; the tolerance lets the tick scheduled for the retirement retire it
+                        double idleSince = replicas.getIdleSince(vm.getId());
+                        if (now - idleSince >= Constants.REPLICA_IDLE_TIME - 1e-9) {
+                            idle.add(vm);
+                        }
+                    }
+                    for (Vm vm : idle) {
+                        allocationPolicy.recordReplicaEvent(vm, false);
+                        sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.VM_DESTROY, vm);
+                        getVmsCreatedList().remove(vm);
+                        getVmList().remove(vm);
+                        replicas.removeReplica(vm.getId());
+                        sampler.forget(vm.getId());
+                    }
+                }
+
+                /**
+                 * CPU utilization of a VM from the cloudlets it is running: the PEs they demand under
+                 * their utilization models over the VM's PEs, capped at 1 when oversubscribed.
+                 */
+                private double measureCpuUtilization(Vm vm, double time) {
+                    CloudletScheduler scheduler = vm.getCloudletScheduler();
+                    if (!(scheduler instanceof CloudletSchedulerTimeShared)) {
+                        return Math.min(1.0, scheduler.getTotalUtilizationOfCpu(time));
+                    }
+                    double demandedPes = 0;
+                    for (ResCloudlet rcl : ((CloudletSchedulerTimeShared) scheduler).<ResCloudlet>getCloudletExecList()) {
+                        demandedPes += rcl.getNumberOfPes() * rcl.getCloudlet().getUtilizationOfCpu(time);
+                    }
+                    return Math.min(1.0, demandedPes / vm.getNumberOfPes());
+                }
+
+                /**
+                 * RAM or BW utilization of a VM: the working sets (CLOUDLET_RAM at 100%) or
+                 * transfer rates (CLOUDLET_BW at 100%) of the cloudlets it is running under their
+                 * utilization models, over the VM's RAM or BW, capped at 1.
+                 */
+                private double measureResourceUtilization(Vm vm, double time, boolean ram) {
+                    CloudletScheduler scheduler = vm.getCloudletScheduler();
+                    if (!(scheduler instanceof CloudletSchedulerTimeShared)) {
+                        return Math.min(1.0, ram ? scheduler.getCurrentRequestedUtilizationOfRam()
+                            : scheduler.getCurrentRequestedUtilizationOfBw());
+                    }
+                    double demand = 0;
+                    for (ResCloudlet rcl : ((CloudletSchedulerTimeShared) scheduler).<ResCloudlet>getCloudletExecList()) {
+                        Cloudlet cloudlet = rcl.getCloudlet();
+                        demand += ram
+                            ? cloudlet.getUtilizationOfRam(time) * Constants.CLOUDLET_RAM
+                            : cloudlet.getUtilizationOfBw(time) * Constants.CLOUDLET_BW;
+                    }
+                    return Math.min(1.0, demand / (ram ? vm.getRam() : vm.getBw()));
+                }
                 
                 @Override
                 public void processEvent(SimEvent ev) {
+                    simulatedEvents++;
+                    long start = SimulationProfiler.start();
+                    handleEvent(ev);
+                    SimulationProfiler.stopEvent(SimulationProfiler.BROKER, ev.getTag(), start);
+                }
+                
+                private void handleEvent(SimEvent ev) {
                     switch (ev.getTag()) {
                         case SIMULATION_END:
                             Log.printLine("DEBUG: Received SIMULATION_END event at time: " + CloudSim.clock());
@@ -147,10 +629,34 @@ public class Main {
                             
                         case CloudSimTags.CLOUDLET_RETURN:
                             Cloudlet cloudlet = (Cloudlet) ev.getData();
-                            getCloudletReceivedList().add(cloudlet);
-                            Log.formatLine("%.3f: %s: Cloudlet %d received", 
-                                CloudSim.clock(), getName(), cloudlet.getCloudletId());
+                            // Only aggregates are kept so long runs do not retain every cloudlet
+                            cloudletsExecuted++;
+                            totalExecutionTime += cloudlet.getActualCPUTime();
+                            cloudletsPerVm.merge(cloudlet.getVmId(), 1, Integer::sum);
+                            recordLatency(cloudlet);
+                            EventTracer.cloudletReturn(CloudSim.clock(), cloudlet.getCloudletId(),
+                                cloudlet.getVmId(), cloudlet.getFinishTime() - cloudlet.getSubmissionTime());
                             vmEndTime.put(cloudlet.getVmId(), CloudSim.clock());
+                            if (streaming) {
+                                int vmId = cloudlet.getVmId();
+                                if (--inFlight[vmId] == 0 && replicas.isReplica(vmId)) {
+                                    replicas.markIdle(vmId, CloudSim.clock());
+                                    if (adaptive) {
+                                        scheduleTick(CloudSim.clock() + Constants.REPLICA_IDLE_TIME);
+                                    }
+                                }
+                                dispatchQueued();
+                            }
+                            break;
+                            
+                        case CloudSimTags.VM_CREATE_ACK:
+                            int[] ack = (int[]) ev.getData();
+                            Vm replica = pendingReplicas.remove(ack[1]);
+                            if (replica != null) {
+                                replicaCreated(replica, ack[0], ack[2] == CloudSimTags.TRUE);
+                            } else {
+                                super.processEvent(ev);
+                            }
                             break;
                             
                         case CloudSimTags.CLOUDLET_SUBMIT:
@@ -180,22 +686,47 @@ public class Main {
         }
     }
 
+    /**
+     * Records wait time (arrival to start of execution) and response time (arrival to finish)
+     * of a returned cloudlet. Batch cloudlets arrive when they are submitted to the datacenter.
+     */
+    private static void recordLatency(Cloudlet cloudlet) {
+        Double arrival = cloudletArrivalTimes.remove(cloudlet.getCloudletId());
+        double arrivalTime = arrival != null ? arrival : cloudlet.getSubmissionTime();
+        double waitTime = cloudlet.getExecStartTime() - arrivalTime;
+        double responseTime = cloudlet.getFinishTime() - arrivalTime;
+
+        waitTimes.record(waitTime);
+        responseTimes.record(responseTime);
+        vmWaitTimes.computeIfAbsent(cloudlet.getVmId(), id -> new LatencyHistogram()).record(waitTime);
+        vmResponseTimes.computeIfAbsent(cloudlet.getVmId(), id -> new LatencyHistogram()).record(responseTime);
+
+        completionLog.append(cloudlet.getCloudletId()).append(',').append(cloudlet.getVmId()).append(',')
+            .append(arrivalTime).append(',').append(cloudlet.getExecStartTime()).append(',')
+            .append(cloudlet.getFinishTime()).append(',').append(waitTime).append(',')
+            .append(responseTime).append('\n');
+    }
+
     private static List<Vm> createVms(int brokerId) {
         List<Vm> vms = new ArrayList<>();
 
         for (int i = 0; i < Constants.VMS; i++) {
-            vms.add(new Vm(
-                i, brokerId, Constants.VM_MIPS, Constants.VM_PES,
-                Constants.VM_RAM, Constants.VM_BW, Constants.VM_SIZE,
-                "Xen", new CloudletSchedulerTimeShared()
-            ));
+            vms.add(createVm(i, brokerId));
         }
 
         return vms;
     }
 
-    private static void generateResults(List<Cloudlet> finishedCloudlets, StringBuilder consoleOutput, StringBuilder csvOutput) {
-        int totalCloudlets = finishedCloudlets.size();
+    private static Vm createVm(int id, int brokerId) {
+        return new Vm(
+            id, brokerId, Constants.VM_MIPS, Constants.VM_PES,
+            Constants.VM_RAM, Constants.VM_BW, Constants.VM_SIZE,
+            "Xen", new CloudletSchedulerTimeShared()
+        );
+    }
+
+    private static void generateResults(ResultsWriter consoleOutput, ResultsWriter csvOutput) {
+        int totalCloudlets = cloudletsExecuted;
         DecimalFormat dft = new DecimalFormat("###.###");
         
         // Add CSV headers
@@ -203,16 +734,12 @@ public class Main {
         csvOutput.append("Timestamp,").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date())).append("\n\n");
         csvOutput.append("CLOUDLET_EXECUTION_SUMMARY\n");
         csvOutput.append("Total_Cloudlets,Executed_Cloudlets,Average_Execution_Time\n");
-        csvOutput.append(Constants.CLOUDLETS).append(",").append(totalCloudlets).append(",");
+        csvOutput.append(cloudletsReleased).append(",").append(totalCloudlets).append(",");
         
         // Console output for simulation results
         consoleOutput.append("\n========== SIMULATION RESULTS ==========\n");
-        consoleOutput.append("Cloudlets Executed: ").append(totalCloudlets).append(" of ").append(Constants.CLOUDLETS).append("\n");
+        consoleOutput.append("Cloudlets Executed: ").append(totalCloudlets).append(" of ").append(cloudletsReleased).append("\n");
         
-        double totalExecutionTime = 0.0;
-        for (Cloudlet cloudlet : finishedCloudlets) {
-            totalExecutionTime += cloudlet.getActualCPUTime();
-        }
         double avgExecutionTime = totalCloudlets > 0 ? totalExecutionTime / totalCloudlets : 0;
         
         consoleOutput.append("Average Cloudlet Execution Time: ").append(dft.format(avgExecutionTime)).append(" seconds\n");
@@ -234,12 +761,6 @@ public class Main {
         csvOutput.append("VM_EXECUTION_DETAILS\n");
         csvOutput.append("VM_ID,Execution_Time,Cloudlet_Count\n");
         
-        Map<Integer, Integer> cloudletsPerVm = new HashMap<>();
-        for (Cloudlet cloudlet : finishedCloudlets) {
-            int vmId = cloudlet.getVmId();
-            cloudletsPerVm.put(vmId, cloudletsPerVm.getOrDefault(vmId, 0) + 1);
-        }
-        
         for (int i = 0; i < Constants.VMS; i++) {
             int cloudletCount = cloudletsPerVm.getOrDefault(i, 0);
             double execTime = vmExecutionTime.getOrDefault(i, 0.0);
@@ -255,17 +776,18 @@ public class Main {
         // Auto-scaling statistics
         consoleOutput.append("\n========== AUTO-SCALING STATISTICS ==========\n");
         csvOutput.append("AUTO_SCALING_STATISTICS\n");
-        csvOutput.append("VM_ID,Original_PEs,Final_PEs,Scaling_Events\n");
+        csvOutput.append("VM_ID,Original_PEs,Final_PEs,Scaling_Events,Replicas_Created,Peak_Replicas,Final_Replicas\n");
         
         Map<Integer, Integer> scalingHistory = allocationPolicy.getVmScalingHistory();
         Map<Integer, List<AutoScalingVmAllocationPolicy.ScalingEvent>> scalingEvents = 
             allocationPolicy.getVmScalingEvents();
         Map<Integer, Integer> originalPes = allocationPolicy.getOriginalPes();
+        ReplicaRegistry replicas = allocationPolicy.getReplicaRegistry();
         
         consoleOutput.append("VM Scaling Summary:\n");
-        consoleOutput.append("--------------------------------------------------\n");
-        consoleOutput.append("VM ID | Original PEs | Final PEs | Scaling Events\n");
-        consoleOutput.append("--------------------------------------------------\n");
+        consoleOutput.append("--------------------------------------------------------------------\n");
+        consoleOutput.append("VM ID | Original PEs | Final PEs | Scaling Events | Replicas (peak)\n");
+        consoleOutput.append("--------------------------------------------------------------------\n");
         
         for (int i = 0; i < Constants.VMS; i++) {
             int initialPes = originalPes.getOrDefault(i, Constants.VM_PES);
@@ -278,24 +800,26 @@ public class Main {
             
             int scalingCount = scalingHistory.getOrDefault(i, 0);
             
-            consoleOutput.append(String.format(" %3d  | %11d | %9d | %14d\n", 
-                i, initialPes, finalPes, scalingCount));
+            consoleOutput.append(String.format(" %3d  | %11d | %9d | %14d | %15s\n", 
+                i, initialPes, finalPes, scalingCount,
+                replicas.getReplicaCount(i) + " (" + replicas.getPeakReplicas(i) + ")"));
             
             csvOutput.append(i).append(",").append(initialPes).append(",").append(finalPes).append(",")
-                .append(scalingCount).append("\n");
+                .append(scalingCount).append(",").append(replicas.getReplicasCreated(i)).append(",")
+                .append(replicas.getPeakReplicas(i)).append(",").append(replicas.getReplicaCount(i)).append("\n");
         }
         
-        consoleOutput.append("--------------------------------------------------\n");
+        consoleOutput.append("--------------------------------------------------------------------\n");
         csvOutput.append("\n");
         
         consoleOutput.append("\nDetailed Scaling Events:\n");
-        consoleOutput.append("-----------------------------------------------------------------------\n");
-        consoleOutput.append("Time | VM ID | CPU Util | Old PEs | New PEs | Old Host | New Host\n");
-        consoleOutput.append("-----------------------------------------------------------------------\n");
+        consoleOutput.append("-----------------------------------------------------------------------------------------------------------------------------\n");
+        consoleOutput.append("Time | VM ID | Dir  | CPU Util | Old PEs | New PEs | Old Host | New Host | Forecast | Avoided | Resource    | New RAM | New BW\n");
+        consoleOutput.append("-----------------------------------------------------------------------------------------------------------------------------\n");
         
         // CSV detailed scaling events
         csvOutput.append("DETAILED_SCALING_EVENTS\n");
-        csvOutput.append("Time,VM_ID,CPU_Utilization,Old_PEs,New_PEs,Old_Host,New_Host\n");
+        csvOutput.append("Time,VM_ID,Direction,CPU_Utilization,Old_PEs,New_PEs,Old_Host,New_Host,Forecast_Utilization,Avoided_Saturation_Time,Resource,Old_RAM,New_RAM,Old_BW,New_BW\n");
         
         List<AutoScalingVmAllocationPolicy.ScalingEvent> allEvents = new ArrayList<>();
         for (List<AutoScalingVmAllocationPolicy.ScalingEvent> events : scalingEvents.values()) {
@@ -305,17 +829,189 @@ public class Main {
         Collections.sort(allEvents, (e1, e2) -> Double.compare(e1.time, e2.time));
         
         for (AutoScalingVmAllocationPolicy.ScalingEvent event : allEvents) {
-            consoleOutput.append(String.format("%4s | %5d | %8s | %7d | %7d | %8d | %8d\n",
-                dft.format(event.time), event.vmId, dft.format(event.cpuUtilization * 100) + "%",
-                event.oldPes, event.newPes, event.oldHostId, event.newHostId));
+            consoleOutput.append(String.format("%4s | %5d | %-4s | %8s | %7d | %7d | %8d | %8d | %8s | %7s | %-11s | %7d | %6d\n",
+                dft.format(event.time), event.vmId, event.direction, dft.format(event.cpuUtilization * 100) + "%",
+                event.oldPes, event.newPes, event.oldHostId, event.newHostId,
+                dft.format(event.forecastUtilization * 100) + "%", dft.format(event.avoidedSaturationTime),
+                event.resource, event.newRam, event.newBw));
             
             csvOutput.append(dft.format(event.time)).append(",").append(event.vmId).append(",")
+                .append(event.direction).append(",")
                 .append(dft.format(event.cpuUtilization * 100)).append(",")
                 .append(event.oldPes).append(",").append(event.newPes).append(",")
-                .append(event.oldHostId).append(",").append(event.newHostId).append("\n");
+                .append(event.oldHostId).append(",").append(event.newHostId).append(",")
+                .append(dft.format(event.forecastUtilization * 100)).append(",")
+                .append(dft.format(event.avoidedSaturationTime)).append(",")
+                .append(event.resource).append(",")
+                .append(event.oldRam).append(",").append(event.newRam).append(",")
+                .append(event.oldBw).append(",").append(event.newBw).append("\n");
+        }
+        
+        consoleOutput.append("-----------------------------------------------------------------------------------------------------------------------------\n");
+        csvOutput.append("\n");
+        
+        // Consolidation summary
+        consoleOutput.append("\nConsolidation Summary:\n");
+        consoleOutput.append("Rounds: ").append(allocationPolicy.getConsolidationRounds())
+            .append(", Migrations: ").append(allocationPolicy.getConsolidationMigrations())
+            .append(", Hosts Freed: ").append(allocationPolicy.getHostsFreed())
+            .append(", Active Hosts: ").append(allocationPolicy.getActiveHostCount())
+            .append(" of ").append(Constants.HOSTS).append("\n");
+        
+        csvOutput.append("CONSOLIDATION_SUMMARY\n");
+        csvOutput.append("Consolidation_Rounds,Migrations,Hosts_Freed,Active_Hosts,Total_Hosts\n");
+        csvOutput.append(allocationPolicy.getConsolidationRounds()).append(",")
+            .append(allocationPolicy.getConsolidationMigrations()).append(",")
+            .append(allocationPolicy.getHostsFreed()).append(",")
+            .append(allocationPolicy.getActiveHostCount()).append(",")
+            .append(Constants.HOSTS).append("\n\n");
+        
+        // Energy of the active hosts up to SIMULATION_LIMIT; empty hosts count as switched off
+        double energyKwh = getEnergyKwh();
+        double activeHostHours = getActiveHostHours();
+        double meanPower = getMeanPower();
+        double performancePerWatt = getPerformancePerWatt();
+        consoleOutput.append("\nEnergy Summary (").append(Constants.PLACEMENT_MODE).append(" placement, ")
+            .append(Constants.POWER_MODEL).append(" power model):\n");
+        consoleOutput.append("Energy: ").append(String.format("%.4f", energyKwh)).append(" kWh")
+            .append(", Active Host Hours: ").append(String.format("%.4f", activeHostHours))
+            .append(", Mean Power: ").append(dft.format(meanPower)).append(" W")
+            .append(", MIPS per Watt: ").append(dft.format(performancePerWatt)).append("\n");
+        
+        csvOutput.append("ENERGY_SUMMARY\n");
+        csvOutput.append("Placement_Mode,Power_Model,Energy_kWh,Active_Host_Hours,Mean_Power_W,Performance_Per_Watt\n");
+        csvOutput.append(Constants.PLACEMENT_MODE).append(",").append(Constants.POWER_MODEL).append(",")
+            .append(String.format("%.6f", energyKwh)).append(",")
+            .append(String.format("%.6f", activeHostHours)).append(",")
+            .append(dft.format(meanPower)).append(",")
+            .append(dft.format(performancePerWatt)).append("\n\n");
+        
+        // Unallocated share of each host's resources over the run
+        consoleOutput.append("\nHost Headroom (mean / min):\n");
+        consoleOutput.append("----------------------------------------------------------------\n");
+        consoleOutput.append("Host |               CPU |               RAM |                BW\n");
+        consoleOutput.append("----------------------------------------------------------------\n");
+        
+        csvOutput.append("HOST_HEADROOM\n");
+        csvOutput.append("Host_ID,Mean_CPU_Headroom,Min_CPU_Headroom,Mean_RAM_Headroom,Min_RAM_Headroom,Mean_BW_Headroom,Min_BW_Headroom\n");
+        for (int h = 0; h < headroom.getHostCount(); h++) {
+            consoleOutput.append(String.format(" %3d", headroom.getHost(h).getId()));
+            csvOutput.append(headroom.getHost(h).getId());
+            for (int resource = HostHeadroomTracker.CPU; resource <= HostHeadroomTracker.BW; resource++) {
+                String mean = dft.format(headroom.getMean(h, resource) * 100);
+                String min = dft.format(headroom.getMin(h, resource) * 100);
+                consoleOutput.append(String.format(" | %17s", mean + "% / " + min + "%"));
+                csvOutput.append(",").append(mean).append(",").append(min);
+            }
+            consoleOutput.append("\n");
+            csvOutput.append("\n");
+        }
+        consoleOutput.append("----------------------------------------------------------------\n");
+        csvOutput.append("\n");
+        
+        // Live migrations of both scale-ups and consolidation, all zero when migrations are instant
+        MigrationCostModel migrations = allocationPolicy.getMigrationCostModel();
+        int liveMigrations = 0, deferredMigrations = 0;
+        double migrationTime = 0, downtime = 0, transferred = 0, degradation = 0;
+        if (migrations != null) {
+            liveMigrations = migrations.getMigrations();
+            deferredMigrations = migrations.getDeferred();
+            migrationTime = migrations.getTotalTime();
+            downtime = migrations.getTotalDowntime();
+            transferred = migrations.getDataTransferred();
+            degradation = migrations.getDegradation();
+        }
+        double meanMigrationTime = liveMigrations > 0 ? migrationTime / liveMigrations : 0;
+        consoleOutput.append("\nMigration Summary:\n");
+        consoleOutput.append("Live Migrations: ").append(liveMigrations)
+            .append(", Total Time: ").append(dft.format(migrationTime))
+            .append(" s, Mean Time: ").append(dft.format(meanMigrationTime))
+            .append(" s, Downtime: ").append(dft.format(downtime))
+            .append(" s, Degradation: ").append(dft.format(degradation))
+            .append(" PE-s, Deferred: ").append(deferredMigrations).append("\n");
+        
+        csvOutput.append("MIGRATION_SUMMARY\n");
+        csvOutput.append("Live_Migrations,Total_Migration_Time,Mean_Migration_Time,Total_Downtime,Data_Transferred_MB,Degradation_PE_Seconds,Deferred_Migrations\n");
+        csvOutput.append(liveMigrations).append(",")
+            .append(dft.format(migrationTime)).append(",")
+            .append(dft.format(meanMigrationTime)).append(",")
+            .append(dft.format(downtime)).append(",")
+            .append(dft.format(transferred)).append(",")
+            .append(dft.format(degradation)).append(",")
+            .append(deferredMigrations).append("\n\n");
+        
+        // Arrivals and broker-side queueing
+        int queuedAtEnd = cloudletsArrived - cloudletsRejected - cloudletsReleased;
+        double avgQueueDelay = cloudletsReleased > 0 ? totalQueueDelay / cloudletsReleased : 0;
+        consoleOutput.append("\nArrival Summary (").append(workloadName).append("):\n");
+        consoleOutput.append("Arrived: ").append(cloudletsArrived)
+            .append(", Rejected: ").append(cloudletsRejected)
+            .append(", Max Queue Length: ").append(maxQueueLength)
+            .append(", Average Queue Delay: ").append(dft.format(avgQueueDelay))
+            .append(" s, Max Queue Delay: ").append(dft.format(maxQueueDelay)).append(" s\n");
+        
+        csvOutput.append("ARRIVAL_SUMMARY\n");
+        csvOutput.append("Arrival_Process,Arrived,Rejected,Queued_At_End,Max_Queue_Length,Average_Queue_Delay,Max_Queue_Delay\n");
+        csvOutput.append(workloadName).append(",")
+            .append(cloudletsArrived).append(",")
+            .append(cloudletsRejected).append(",")
+            .append(queuedAtEnd).append(",")
+            .append(maxQueueLength).append(",")
+            .append(dft.format(avgQueueDelay)).append(",")
+            .append(dft.format(maxQueueDelay)).append("\n\n");
+
+        consoleOutput.append("\nSampling Summary (").append(Constants.SAMPLING_MODE).append("):\n");
+        consoleOutput.append("Ticks: ").append(samplingTicks)
+            .append(", VM Samples: ").append(vmSamples).append("\n");
+
+        csvOutput.append("SAMPLING_SUMMARY\n");
+        csvOutput.append("Sampling_Mode,Ticks,VM_Samples\n");
+        csvOutput.append(Constants.SAMPLING_MODE).append(",")
+            .append(samplingTicks).append(",")
+            .append(vmSamples).append("\n\n");
+
+        // Forecast accuracy and the saturation the predictive mode scaled ahead of
+        UtilizationForecaster forecaster = allocationPolicy.getForecaster();
+        consoleOutput.append("\nForecast Summary (").append(Constants.SCALING_MODE).append("):\n");
+        consoleOutput.append("Forecast MAE: ").append(dft.format(forecaster.getMeanAbsoluteError() * 100))
+            .append("%, Saturated VM Time: ").append(dft.format(allocationPolicy.getSaturatedVmTime()))
+            .append(" s, Predictive Scale-Ups: ").append(allocationPolicy.getPredictiveScaleUps())
+            .append(", Avoided Saturation Time: ").append(dft.format(allocationPolicy.getAvoidedSaturationTime()))
+            .append(" s\n");
+
+        csvOutput.append("FORECAST_SUMMARY\n");
+        csvOutput.append("Scaling_Mode,Forecast_MAE,Forecast_Samples,Saturated_VM_Time,Predictive_Scale_Ups,Avoided_Saturation_Time\n");
+        csvOutput.append(Constants.SCALING_MODE).append(",")
+            .append(dft.format(forecaster.getMeanAbsoluteError() * 100)).append(",")
+            .append(forecaster.getScoredSamples()).append(",")
+            .append(dft.format(allocationPolicy.getSaturatedVmTime())).append(",")
+            .append(allocationPolicy.getPredictiveScaleUps()).append(",")
+            .append(dft.format(allocationPolicy.getAvoidedSaturationTime())).append("\n\n");
+        
+        // Wall-clock cost of the simulation loop, only when profiling
+        if (SimulationProfiler.ENABLED) {
+            SimulationProfiler.report(consoleOutput, csvOutput, dft);
         }
         
-        consoleOutput.append("-----------------------------------------------------------------------\n");
+        // Latency percentiles
+        consoleOutput.append("\nLatency Percentiles (s):\n");
+        consoleOutput.append("---------------------------------------------------------------------------\n");
+        consoleOutput.append("VM ID | Metric   |  Count |   Mean |    P50 |    P95 |    P99 |  P99.9 |    Max\n");
+        consoleOutput.append("---------------------------------------------------------------------------\n");
+        
+        csvOutput.append("LATENCY_PERCENTILES\n");
+        csvOutput.append("Metric,Count,Mean,P50,P95,P99,P99_9,Max\n");
+        appendLatencyRow(consoleOutput, csvOutput, dft, null, "Wait", waitTimes);
+        appendLatencyRow(consoleOutput, csvOutput, dft, null, "Response", responseTimes);
+        csvOutput.append("\n");
+        
+        csvOutput.append("VM_LATENCY_PERCENTILES\n");
+        csvOutput.append("VM_ID,Metric,Count,Mean,P50,P95,P99,P99_9,Max\n");
+        for (Map.Entry<Integer, LatencyHistogram> entry : vmResponseTimes.entrySet()) {
+            appendLatencyRow(consoleOutput, csvOutput, dft, entry.getKey(), "Wait", vmWaitTimes.get(entry.getKey()));
+            appendLatencyRow(consoleOutput, csvOutput, dft, entry.getKey(), "Response", entry.getValue());
+        }
+        consoleOutput.append("---------------------------------------------------------------------------\n");
         csvOutput.append("\n");
         
         Map<Vm, Double> vmUtilization = allocationPolicy.getVmUtilization();
@@ -337,21 +1033,122 @@ public class Main {
             }
             consoleOutput.append("------------------------\n");
         }
-        
-        // Print to console
-        Log.print(consoleOutput.toString());
     }
     
-    // Removed writeResultsToHtml method as we want index.html to be static
+    /**
+     * Energy drawn by all hosts so far, in kWh.
+     */
+    private static double getEnergyKwh() {
+        double joules = 0;
+        for (PowerMeteredHost host : hostList) {
+            joules += host.getEnergy();
+        }
+        return joules / 3.6e6;
+    }
     
-    private static void writeResultsToCsv(String content) {
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter("results/simulation_results.csv"));
-            writer.write(content);
-            writer.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-            Log.printLine("Error writing CSV results: " + e.getMessage());
+    private static double getActiveHostHours() {
+        double seconds = 0;
+        for (PowerMeteredHost host : hostList) {
+            seconds += host.getActiveTime();
         }
+        return seconds / 3600;
     }
+    
+    /**
+     * Mean power of an active host, in watts.
+     */
+    private static double getMeanPower() {
+        double hours = getActiveHostHours();
+        return hours > 0 ? getEnergyKwh() * 1000 / hours : 0;
+    }
+    
+    /**
+     * MI executed per joule, i.e. MIPS delivered per watt drawn.
+     */
+    private static double getPerformancePerWatt() {
+        double work = 0;
+        double joules = 0;
+        for (PowerMeteredHost host : hostList) {
+            work += host.getWork();
+            joules += host.getEnergy();
+        }
+        return joules > 0 ? work / joules : 0;
+    }
+    
+    /**
+     * Events processed by the broker and the datacenter in the last run.
+     */
+    public static long getSimulatedEvents() {
+        return simulatedEvents;
+    }
+
+    /**
+     * Headline metrics of the finished run, merged by {@link SweepRunner} into its summary.
+     * Only JDK types are returned so the map can be read from another class loader.
+     */
+    public static Map<String, Double> collectMetrics() {
+        int scalingEvents = 0;
+        for (int count : allocationPolicy.getVmScalingHistory().values()) {
+            scalingEvents += count;
+        }
+        
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        metrics.put("Cloudlets_Arrived", (double) cloudletsArrived);
+        metrics.put("Cloudlets_Executed", (double) cloudletsExecuted);
+        metrics.put("Cloudlets_Rejected", (double) cloudletsRejected);
+        metrics.put("Average_Execution_Time", cloudletsExecuted > 0 ? totalExecutionTime / cloudletsExecuted : 0);
+        metrics.put("Average_Queue_Delay", cloudletsReleased > 0 ? totalQueueDelay / cloudletsReleased : 0);
+        metrics.put("Wait_P50", waitTimes.getPercentile(50));
+        metrics.put("Wait_P99", waitTimes.getPercentile(99));
+        metrics.put("Response_P50", responseTimes.getPercentile(50));
+        metrics.put("Response_P95", responseTimes.getPercentile(95));
+        metrics.put("Response_P99", responseTimes.getPercentile(99));
+        metrics.put("Response_P99_9", responseTimes.getPercentile(99.9));
+        metrics.put("Scaling_Events", (double) scalingEvents);
+        metrics.put("Scale_Downs", (double) allocationPolicy.getScaleDowns());
+        metrics.put("Replicas_Created", (double) allocationPolicy.getReplicaRegistry().getTotalReplicasCreated());
+        metrics.put("Migrations", (double) allocationPolicy.getConsolidationMigrations());
+        MigrationCostModel migrations = allocationPolicy.getMigrationCostModel();
+        metrics.put("Migration_Time", migrations != null ? migrations.getTotalTime() : 0);
+        metrics.put("Migration_Degradation", migrations != null ? migrations.getDegradation() : 0);
+        metrics.put("Mean_CPU_Headroom", headroom.getDatacenterMean(HostHeadroomTracker.CPU));
+        metrics.put("Mean_RAM_Headroom", headroom.getDatacenterMean(HostHeadroomTracker.RAM));
+        metrics.put("Mean_BW_Headroom", headroom.getDatacenterMean(HostHeadroomTracker.BW));
+        metrics.put("Hosts_Freed", (double) allocationPolicy.getHostsFreed());
+        metrics.put("Active_Hosts", (double) allocationPolicy.getActiveHostCount());
+        metrics.put("Energy_kWh", getEnergyKwh());
+        metrics.put("Active_Host_Hours", getActiveHostHours());
+        metrics.put("Performance_Per_Watt", getPerformancePerWatt());
+        metrics.put("Simulated_Events", (double) simulatedEvents);
+        metrics.put("Sampling_Ticks", (double) samplingTicks);
+        metrics.put("VM_Samples", (double) vmSamples);
+        metrics.put("Forecast_MAE", allocationPolicy.getForecaster().getMeanAbsoluteError());
+        metrics.put("Saturated_VM_Time", allocationPolicy.getSaturatedVmTime());
+        metrics.put("Avoided_Saturation_Time", allocationPolicy.getAvoidedSaturationTime());
+        return metrics;
+    }
+    
+    /**
+     * Appends one histogram as a console row and a CSV row; overall rows have a null vmId.
+     */
+    private static void appendLatencyRow(ResultsWriter consoleOutput, ResultsWriter csvOutput,
+            DecimalFormat dft, Integer vmId, String metric, LatencyHistogram histogram) {
+        consoleOutput.append(String.format(" %4s | %-8s | %6d | %6s", vmId != null ? vmId : "all", metric,
+            histogram.getCount(), dft.format(histogram.getMean())));
+        if (vmId != null) {
+            csvOutput.append(vmId).append(",");
+        }
+        csvOutput.append(metric).append(",").append(histogram.getCount()).append(",")
+            .append(dft.format(histogram.getMean()));
+        
+        for (double percentile : REPORTED_PERCENTILES) {
+            String value = dft.format(histogram.getPercentile(percentile));
+            consoleOutput.append(String.format(" | %6s", value));
+            csvOutput.append(",").append(value);
+        }
+        consoleOutput.append(String.format(" | %6s\n", dft.format(histogram.getMax())));
+        csvOutput.append(",").append(dft.format(histogram.getMax())).append("\n");
+    }
+    
+    // Removed writeResultsToHtml method as we want index.html to be static
 }
\ No newline at end of file
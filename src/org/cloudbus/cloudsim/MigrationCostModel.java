@@ -0,0 +1,285 @@
+package org.cloudbus.cloudsim;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-copy live migration. The VM's RAM is first copied while the VM keeps running, then the
+ * pages dirtied during each round are sent again until what is left fits a short stop-and-copy,
+ * or the round limit is reached. Rounds run at a share of the bandwidth both hosts have free.
+ *
+ * The VM is placed on the target when the migration starts, as with {@link VmResizer#migrate},
+ * but until it ends three reservations model its cost: the VM's old footprint stays held on the
+ * source, where it is still running, the migration bandwidth is held on both hosts, and the VM's
+ * cloudlets get {@code slowdown} less MIPS, held on the target for the copy work.
+ */
+public class MigrationCostModel {
+    private final double dirtyRate;      // Fraction of RAM dirtied per second at 100% CPU
+    private final int maxRounds;         // Pre-copy rounds before the stop-and-copy is forced
+    private final double stopCopySize;   // Dirty MB small enough for the stop-and-copy
+    private final double bandwidthShare; // Share of the hosts' free bandwidth a migration uses
+    private final double slowdown;       // Share of the VM's MIPS lost while it migrates
+
+    private final Map<Integer, Migration> inFlight = new HashMap<>(); // By VM id
+
+    private int migrations;
+    private int deferred;
+    private double totalTime;
+    private double totalDowntime;
+    private double dataTransferred;      // MB
+    private double degradation;          // PE-seconds withheld from migrating VMs
+
+    /**
+     * A planned or running migration. The cost figures are fixed when it is planned.
+     */
+    public static class Migration {
+        private final Vm vm;
+        private final Host source;
+        private final Host target;
+        private final int oldPes;
+        private final int oldRam;
+        private final long oldBw;
+        private final int pes;
+        private final int ram;
+        private final long bw;
+        private final long migrationBw; // Mbps held on both hosts
+        private double duration;
+        private double downtime;
+        private double transferred;     // MB
+        private double startTime;
+        private Vm reservation;         // Holds the source footprint and the migration's share of both hosts
+
+        private Migration(Vm vm, Host source, Host target, int pes, int ram, long bw, long migrationBw) {
+            this.vm = vm;
+            this.source = source;
+            this.target = target;
+            this.oldPes = vm.getNumberOfPes();
+            this.oldRam = vm.getRam();
+            this.oldBw = vm.getBw();
+            this.pes = pes;
+            this.ram = ram;
+            this.bw = bw;
+            this.migrationBw = migrationBw;
+        }
+
+        public Vm getVm() {
+            return vm;
+        }
+
+        public Host getSource() {
+            return source;
+        }
+
+        public Host getTarget() {
+            return target;
+        }
+
+        public int getPes() {
+            return pes;
+        }
+
+        public double getDuration() {
+            return duration;
+        }
+
+        public double getDowntime() {
+            return downtime;
+        }
+
+        public double getEndTime() {
+            return startTime + duration;
+        }
+    }
+
+    public MigrationCostModel(double dirtyRate, int maxRounds, double stopCopySize,
+                              double bandwidthShare, double slowdown) {
+        if (maxRounds < 1) {
+            throw new IllegalArgumentException("MIGRATION_MAX_ROUNDS must be at least 1");
+        }
+        if (slowdown < 0 || slowdown >= 1) {
+            throw new IllegalArgumentException("MIGRATION_SLOWDOWN must be in [0, 1)");
+        }
+        this.dirtyRate = dirtyRate;
+        this.maxRounds = maxRounds;
+        this.stopCopySize = stopCopySize;
+        this.bandwidthShare = bandwidthShare;
+        this.slowdown = slowdown;
+    }
+
+    /**
+     * Plans moving a VM to {@code target} with the given size, or returns null if the hosts
+     * have no bandwidth left to migrate over. Nothing is provisioned yet.
+     *
+     * @param utilization CPU utilization of the VM, which scales how fast it dirties pages
+     */
+    public Migration plan(Vm vm, Host source, Host target, int pes, int ram, long bw, double utilization) {
+        long free = Math.min(source.getBwProvisioner().getAvailableBw(),
+            target.getBwProvisioner().getAvailableBw() - bw);
+        long migrationBw = (long) (bandwidthShare * free);
+        if (migrationBw <= 0) return null;
+
+        Migration migration = new Migration(vm, source, target, pes, ram, bw, migrationBw);
+        double rate = migrationBw / 8.0; // MB per second
+        double dirtied = dirtyRate * Math.min(1.0, utilization) * vm.getRam();
+        double volume = vm.getRam();
+        for (int round = 1; ; round++) {
+            double roundTime = volume / rate;
+            migration.duration += roundTime;
+            migration.transferred += volume;
+            volume = Math.min(vm.getRam(), dirtied * roundTime);
+            if (volume <= stopCopySize || round == maxRounds) break;
+        }
+        migration.downtime = volume / rate;
+        migration.duration += migration.downtime;
+        migration.transferred += volume;
+        return migration;
+    }
+
+    /**
+     * PE-seconds a planned migration takes from the VM's cloudlets.
+     */
+    public double getDegradation(Migration migration) {
+        return slowdown * migration.pes * migration.duration;
+    }
+
+    /**
+     * Places the VM on the target and makes the reservations that last until
+     * {@link #finish(Migration)}. Returns false, changing nothing, if the VM no longer fits.
+     */
+    public boolean start(Migration migration) {
+        Vm vm = migration.vm;
+        Host source = migration.source;
+        Host target = migration.target;
+        if (!VmResizer.migrate(source, target, vm, migration.pes, migration.ram, migration.bw)) {
+            return false;
+        }
+
+        // The source just released the old footprint and both hosts had migrationBw spare, so
+        // none of these allocations can fail
+        Vm reservation = new Vm(-1 - vm.getId(), vm.getUserId(), vm.getMips(), migration.oldPes,
+            migration.oldRam, migration.oldBw + migration.migrationBw, 0, vm.getVmm(),
+            new CloudletSchedulerTimeShared());
+        source.getVmScheduler().allocatePesForVm(reservation, mipsShare(vm, migration.oldPes, 1.0));
+        source.getRamProvisioner().allocateRamForVm(reservation, migration.oldRam);
+        source.getBwProvisioner().allocateBwForVm(reservation, migration.oldBw + migration.migrationBw);
+        target.getBwProvisioner().allocateBwForVm(reservation, migration.migrationBw);
+        if (slowdown > 0) {
+            VmScheduler scheduler = target.getVmScheduler();
+            scheduler.deallocatePesForVm(vm);
+            scheduler.allocatePesForVm(vm, mipsShare(vm, migration.pes, 1 - slowdown));
+            // Capped by what is left so rounding cannot make the exact fit fail
+            double reserved = Math.min(vm.getMips() * slowdown, scheduler.getAvailableMips() / migration.pes);
+            scheduler.allocatePesForVm(reservation, new ArrayList<>(Collections.nCopies(migration.pes, reserved)));
+            vm.updateVmProcessing(CloudSim.clock(), scheduler.getAllocatedMipsForVm(vm));
+        }
+
+        migration.reservation = reservation;
+        migration.startTime = CloudSim.clock();
+        inFlight.put(vm.getId(), migration);
+        migrations++;
+        totalTime += migration.duration;
+        totalDowntime += migration.downtime;
+        dataTransferred += migration.transferred;
+        degradation += getDegradation(migration);
+        return true;
+    }
+
+    /**
+     * Ends a migration: releases its reservations and gives the VM its full MIPS back.
+     * Returns false if the migration was already aborted.
+     */
+    public boolean finish(Migration migration) {
+        Vm vm = migration.vm;
+        if (inFlight.get(vm.getId()) != migration) return false;
+        inFlight.remove(vm.getId());
+        release(migration);
+
+        if (slowdown > 0) {
+            VmScheduler scheduler = migration.target.getVmScheduler();
+            vm.updateVmProcessing(CloudSim.clock(), new ArrayList<>(scheduler.getAllocatedMipsForVm(vm)));
+            scheduler.deallocatePesForVm(vm);
+            scheduler.allocatePesForVm(vm, mipsShare(vm, migration.pes, 1.0));
+            vm.updateVmProcessing(CloudSim.clock(), scheduler.getAllocatedMipsForVm(vm));
+        }
+        return true;
+    }
+
+    /**
+     * Releases the reservations of a VM's migration, if one is running, when the VM is
+     * destroyed before it ends. Only the part of its cost incurred so far is counted.
+     *
+     * @return the aborted migration, or null if the VM was not migrating
+     */
+    public Migration abort(Vm vm) {
+        Migration migration = inFlight.remove(vm.getId());
+        if (migration == null) return null;
+        release(migration);
+
+        double remaining = Math.max(0, migration.getEndTime() - CloudSim.clock());
+        totalTime -= remaining;
+        degradation -= slowdown * migration.pes * remaining;
+        return migration;
+    }
+
+    private void release(Migration migration) {
+        Vm reservation = migration.reservation;
+        migration.source.getVmScheduler().deallocatePesForVm(reservation);
+        migration.source.getRamProvisioner().deallocateRamForVm(reservation);
+        migration.source.getBwProvisioner().deallocateBwForVm(reservation);
+        migration.target.getBwProvisioner().deallocateBwForVm(reservation);
+        if (slowdown > 0) {
+            migration.target.getVmScheduler().deallocatePesForVm(reservation);
+        }
+    }
+
+    /**
+     * Records a migration the policy decided was not worth its cost.
+     */
+    public void defer() {
+        deferred++;
+    }
+
+    public boolean isMigrating(int vmId) {
+        return inFlight.containsKey(vmId);
+    }
+
+    /**
+     * End of the VM's running migration, negative infinity if it is not migrating.
+     */
+    public double getEndTime(int vmId) {
+        Migration migration = inFlight.get(vmId);
+        return migration != null ? migration.getEndTime() : Double.NEGATIVE_INFINITY;
+    }
+
+    public int getMigrations() {
+        return migrations;
+    }
+
+    public int getDeferred() {
+        return deferred;
+    }
+
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    public double getTotalDowntime() {
+        return totalDowntime;
+    }
+
+    public double getDataTransferred() {
+        return dataTransferred;
+    }
+
+    public double getDegradation() {
+        return degradation;
+    }
+
+    private static List<Double> mipsShare(Vm vm, int pes, double fraction) {
+        return new ArrayList<>(Collections.nCopies(pes, vm.getMips() * fraction));
+    }
+}
@@ -0,0 +1,159 @@
+package org.cloudbus.cloudsim;
+
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.power.models.PowerModel;
+import org.cloudbus.cloudsim.power.models.PowerModelCubic;
+import org.cloudbus.cloudsim.power.models.PowerModelLinear;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerIbmX3550XeonX5670;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerIbmX3550XeonX5675;
+import org.cloudbus.cloudsim.power.models.PowerModelSqrt;
+import org.cloudbus.cloudsim.power.models.PowerModelSquare;
+import org.cloudbus.cloudsim.provisioners.BwProvisioner;
+import org.cloudbus.cloudsim.provisioners.RamProvisioner;
+import java.util.List;
+
+/**
+ * PowerHost that meters its own energy. VM processing is the plain {@link Host} one: unlike
+ * {@link HostDynamicWorkload}, the host does not re-allocate each VM the MIPS it requests at every
+ * update, which would undo the sizes set by scaling and migrations, and it keeps no state history.
+ *
+ * A host draws power only while it is active, i.e. holds a VM or a migration reservation;
+ * an empty host is taken to be switched off. The CPU utilization fed to the power model is the
+ * MIPS the VMs' cloudlets use, capped by what each VM is allocated, plus the MIPS reserved for
+ * migrations. It is held from one update to the next, so energy is exact for the utilization
+ * the datacenter sees. Energy is metered up to {@link Constants#SIMULATION_LIMIT} only, so
+ * runs whose cloudlets or migrations outlast it are compared over the same window.
+ */
+public class PowerMeteredHost extends PowerHost {
+    private double lastMeterTime;
+    private boolean active;
+    private double energy;     // Joules (watt-seconds)
+    private double activeTime; // Seconds spent active
+    private double work;       // MI executed, counted as MIPS in use times time
+
+    public PowerMeteredHost(int id, RamProvisioner ramProvisioner, BwProvisioner bwProvisioner, long storage,
+                            List<? extends Pe> peList, VmScheduler vmScheduler, PowerModel powerModel) {
+        super(id, ramProvisioner, bwProvisioner, storage, peList, vmScheduler, powerModel);
+    }
+
+    /**
+     * Creates the power model named by {@link Constants#POWER_MODEL}: "linear", "sqrt", "square"
+     * or "cubic" between {@link Constants#HOST_STATIC_POWER} and {@link Constants#HOST_MAX_POWER},
+     * or the SPECpower measurements of a 12-core "ibm-x5670" or "ibm-x5675" server.
+     */
+    public static PowerModel createPowerModel(String name) {
+        double maxPower = Constants.HOST_MAX_POWER;
+        double staticPower = Constants.HOST_STATIC_POWER;
+        switch (name.toLowerCase()) {
+            case "linear":
+                return new PowerModelLinear(maxPower, staticPower);
+            case "sqrt":
+                return new PowerModelSqrt(maxPower, staticPower);
+            case "square":
+                return new PowerModelSquare(maxPower, staticPower);
+            case "cubic":
+                return new PowerModelCubic(maxPower, staticPower);
+            case "ibm-x5670":
+                return new PowerModelSpecPowerIbmX3550XeonX5670();
+            case "ibm-x5675":
+                return new PowerModelSpecPowerIbmX3550XeonX5675();
+            default:
+                throw new IllegalArgumentException("Unknown power model: " + name);
+        }
+    }
+
+    @Override
+    public double updateVmsProcessing(double currentTime) {
+        double smallerTime = Double.MAX_VALUE;
+
+        for (Vm vm : getVmList()) {
+            double time = vm.updateVmProcessing(currentTime, getVmScheduler().getAllocatedMipsForVm(vm));
+            if (time > 0.0 && time < smallerTime) {
+                smallerTime = time;
+            }
+        }
+
+        meter(currentTime);
+        return smallerTime;
+    }
+
+    /**
+     * Accounts energy up to {@code time} at the utilization of the last update, then reads the
+     * current utilization.
+     */
+    private void meter(double time) {
+        double end = Math.min(time, Constants.SIMULATION_LIMIT);
+        double elapsed = end - lastMeterTime;
+        if (elapsed > 0) {
+            if (active) {
+                energy += getPower() * elapsed;
+                activeTime += elapsed;
+                work += getUtilizationMips() * elapsed;
+            }
+            lastMeterTime = end;
+        }
+
+        VmScheduler scheduler = getVmScheduler();
+        double allocated = 0;
+        double used = 0;
+        for (Vm vm : getVmList()) {
+            double vmAllocated = scheduler.getTotalAllocatedMipsForVm(vm);
+            allocated += vmAllocated;
+            used += Math.min(vm.getTotalUtilizationOfCpuMips(time), vmAllocated);
+        }
+        double reserved = Math.max(0, getTotalMips() - scheduler.getAvailableMips() - allocated);
+        setPreviousUtilizationMips(getUtilizationMips());
+        setUtilizationMips(Math.min(getTotalMips(), used + reserved));
+        active = isInUse(this);
+    }
+
+    /**
+     * Whether a host must be on: it holds VMs, or capacity reserved for none of them, such as
+     * the old footprint a live migration keeps on its source until it ends. The allocation
+     * policy and its capacity index count active hosts with this test too.
+     */
+    public static boolean isInUse(Host host) {
+        return !host.getVmList().isEmpty()
+            || host.getVmScheduler().getAvailableMips() < host.getTotalMips()
+            || host.getRamProvisioner().getUsedRam() > 0
+            || host.getBwProvisioner().getUsedBw() > 0;
+    }
+
+    /**
+     * Power at a utilization. CloudSim's analytic models draw nothing at exactly 0%, taking the
+     * host to be off, so an active idle host is given its static power instead.
+     */
+    @Override
+    protected double getPower(double utilization) {
+        return super.getPower(Math.max(Double.MIN_NORMAL, Math.min(1.0, utilization)));
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Power drawn at the utilization of the last update, 0 while the host is off.
+     */
+    public double getCurrentPower() {
+        return active ? getPower() : 0;
+    }
+
+    /**
+     * Energy drawn so far, in joules.
+     */
+    public double getEnergy() {
+        return energy;
+    }
+
+    public double getActiveTime() {
+        return activeTime;
+    }
+
+    /**
+     * MI executed so far by the VMs on the host.
+     */
+    public double getWork() {
+        return work;
+    }
+}
@@ -0,0 +1,56 @@
+package org.cloudbus.cloudsim;
+
+import java.util.SplittableRandom;
+
+/**
+ * Independent random streams derived from the run seed, {@link Constants#RANDOM_SEED}. Each
+ * subsystem has its own stream, and items within it, such as cloudlets, get their own seeds
+ * hashed from the stream's seed and their index. A value therefore depends only on the run seed
+ * and what it is for, not on how many values other parts of the simulation drew before it, so
+ * runs are reproducible and two runs that differ in one subsystem draw the same values elsewhere.
+ *
+ * Seeds and counter-based values come from {@link UtilizationModels#hash} and allocate nothing;
+ * sequential draws, such as arrival times, use a {@link SplittableRandom} on a stream's seed.
+ */
+public final class RandomStreams {
+    public static final long CLOUDLETS = 1; // Length, CPU model and model seed of each cloudlet
+    public static final long ARRIVALS = 2;  // Arrival times of the open-loop workload
+
+    private RandomStreams() {
+    }
+
+    /**
+     * Seed of a subsystem's stream.
+     */
+    public static long seed(long stream) {
+        return UtilizationModels.hash(Constants.RANDOM_SEED, stream);
+    }
+
+    /**
+     * Seed of an item within a stream, e.g. a cloudlet by its id.
+     */
+    public static long seed(long stream, long index) {
+        return UtilizationModels.hash(seed(stream), index);
+    }
+
+    /**
+     * Sequential generator over a subsystem's stream.
+     */
+    public static SplittableRandom create(long stream) {
+        return new SplittableRandom(seed(stream));
+    }
+
+    /**
+     * The {@code counter}-th uniform value in [0, 1) of an item's seed.
+     */
+    public static double uniform(long seed, long counter) {
+        return UtilizationModels.uniform(seed, counter);
+    }
+
+    /**
+     * The {@code counter}-th uniform int in [0, bound) of an item's seed.
+     */
+    public static int nextInt(long seed, long counter, int bound) {
+        return (int) (uniform(seed, counter) * bound);
+    }
+}
@@ -0,0 +1,170 @@
+package org.cloudbus.cloudsim;
+
+import java.util.Arrays;
+
+/**
+ * Services for horizontal scaling. Every VM created at the start of a run is a logical service,
+ * identified by its VM id; replica VMs added to a service later are tracked here from the
+ * moment the broker requests them until they are retired. Like {@link VmStateStore}, the state
+ * is kept in primitive columns, indexed by VM id and by service id, that grow by doubling.
+ */
+public class ReplicaRegistry {
+    private static final int INITIAL_CAPACITY = 64;
+
+    // By VM id
+    private int[] serviceOf = filled(new int[INITIAL_CAPACITY], -1); // Service of each replica, -1 for other VMs
+    private boolean[] live = new boolean[INITIAL_CAPACITY];           // Replica requested or running, not retired
+    private double[] idleSince = new double[INITIAL_CAPACITY];        // Start of a running replica's idle time, NaN while busy
+    private int[] livePosition = new int[INITIAL_CAPACITY];           // Index of a live replica in liveIds
+
+    // Ids of the live replicas, unordered, so ticks scan only these rather than every VM id
+    private int[] liveIds = new int[INITIAL_CAPACITY];
+    private int liveCount;
+
+    // By service id
+    private int[] replicas = new int[INITIAL_CAPACITY];               // Live replicas, including requested ones
+    private int[] peakReplicas = new int[INITIAL_CAPACITY];
+    private int[] replicasCreated = new int[INITIAL_CAPACITY];
+    private double[] lastScaleOut = filled(new double[INITIAL_CAPACITY], Double.NEGATIVE_INFINITY);
+
+    /**
+     * Service a VM belongs to: its own id unless it is a replica.
+     */
+    public int getServiceId(int vmId) {
+        return vmId < serviceOf.length && serviceOf[vmId] >= 0 ? serviceOf[vmId] : vmId;
+    }
+
+    public boolean isReplica(int vmId) {
+        return vmId < live.length && live[vmId];
+    }
+
+    /**
+     * Records that a replica was requested for a service at {@code time}.
+     */
+    public void addReplica(int serviceId, int vmId, double time) {
+        ensureCapacity(Math.max(serviceId, vmId));
+        serviceOf[vmId] = serviceId;
+        if (!live[vmId]) {
+            if (liveCount == liveIds.length) {
+                liveIds = Arrays.copyOf(liveIds, liveCount * 2);
+            }
+            livePosition[vmId] = liveCount;
+            liveIds[liveCount++] = vmId;
+        }
+        live[vmId] = true;
+        idleSince[vmId] = Double.NaN;
+        replicas[serviceId]++;
+        lastScaleOut[serviceId] = time;
+    }
+
+    /**
+     * Records that a requested replica is running. It counts as idle until it gets a cloudlet.
+     */
+    public void activate(int vmId, double time) {
+        int serviceId = serviceOf[vmId];
+        replicasCreated[serviceId]++;
+        peakReplicas[serviceId] = Math.max(peakReplicas[serviceId], replicas[serviceId]);
+        idleSince[vmId] = time;
+    }
+
+    /**
+     * Records that a replica was retired, or could not be created.
+     */
+    public void removeReplica(int vmId) {
+        if (!isReplica(vmId)) return;
+        live[vmId] = false;
+        int last = liveIds[--liveCount];
+        liveIds[livePosition[vmId]] = last;
+        livePosition[last] = livePosition[vmId];
+        replicas[serviceOf[vmId]]--;
+    }
+
+    public void markBusy(int vmId) {
+        if (isReplica(vmId)) {
+            idleSince[vmId] = Double.NaN;
+        }
+    }
+
+    public void markIdle(int vmId, double time) {
+        if (isReplica(vmId) && Double.isNaN(idleSince[vmId])) {
+            idleSince[vmId] = time;
+        }
+    }
+
+    /**
+     * Start of a replica's idle time, NaN if it is busy or not a replica.
+     */
+    public double getIdleSince(int vmId) {
+        return isReplica(vmId) ? idleSince[vmId] : Double.NaN;
+    }
+
+    /**
+     * Earliest time an idle replica is due for retirement, infinite if none is idle.
+     */
+    public double nextRetirementTime(double idleTime) {
+        double next = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < liveCount; i++) {
+            double since = idleSince[liveIds[i]];
+            if (!Double.isNaN(since)) {
+                next = Math.min(next, since + idleTime);
+            }
+        }
+        return next;
+    }
+
+    public int getReplicaCount(int serviceId) {
+        return serviceId < replicas.length ? replicas[serviceId] : 0;
+    }
+
+    public int getPeakReplicas(int serviceId) {
+        return serviceId < peakReplicas.length ? peakReplicas[serviceId] : 0;
+    }
+
+    public int getReplicasCreated(int serviceId) {
+        return serviceId < replicasCreated.length ? replicasCreated[serviceId] : 0;
+    }
+
+    public int getTotalReplicasCreated() {
+        int total = 0;
+        for (int created : replicasCreated) {
+            total += created;
+        }
+        return total;
+    }
+
+    /**
+     * Time of the service's last scale-out, negative infinity if it never scaled out.
+     */
+    public double getLastScaleOut(int serviceId) {
+        return serviceId < lastScaleOut.length ? lastScaleOut[serviceId] : Double.NEGATIVE_INFINITY;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < serviceOf.length) return;
+        int old = serviceOf.length;
+        int capacity = old;
+        while (capacity <= id) {
+            capacity <<= 1;
+        }
+        serviceOf = Arrays.copyOf(serviceOf, capacity);
+        Arrays.fill(serviceOf, old, capacity, -1);
+        live = Arrays.copyOf(live, capacity);
+        idleSince = Arrays.copyOf(idleSince, capacity);
+        livePosition = Arrays.copyOf(livePosition, capacity);
+        replicas = Arrays.copyOf(replicas, capacity);
+        peakReplicas = Arrays.copyOf(peakReplicas, capacity);
+        replicasCreated = Arrays.copyOf(replicasCreated, capacity);
+        lastScaleOut = Arrays.copyOf(lastScaleOut, capacity);
+        Arrays.fill(lastScaleOut, old, capacity, Double.NEGATIVE_INFINITY);
+    }
+
+    private static int[] filled(int[] array, int value) {
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    private static double[] filled(double[] array, double value) {
+        Arrays.fill(array, value);
+        return array;
+    }
+}
@@ -0,0 +1,131 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends text output to a channel through a fixed direct buffer, so results are written
+ * as they are produced instead of being assembled in memory first.
+ *
+ * The append methods mirror {@link StringBuilder} so report code can write to either. Output
+ * is ASCII; characters outside it are written as '?'. A writer created by {@link #discarding()}
+ * ignores everything, which lets optional output such as the console report cost nothing.
+ */
+public class ResultsWriter implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean closeChannel;
+
+    private ResultsWriter(WritableByteChannel channel, boolean closeChannel) {
+        this.channel = channel;
+        this.buffer = channel != null ? ByteBuffer.allocateDirect(BUFFER_SIZE) : null;
+        this.closeChannel = closeChannel;
+    }
+
+    /**
+     * Creates or truncates a file, creating its parent directory if needed.
+     */
+    public static ResultsWriter toFile(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            return new ResultsWriter(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes to a stream that stays open when the writer is closed, e.g. the console.
+     */
+    public static ResultsWriter toStream(OutputStream out) {
+        return new ResultsWriter(Channels.newChannel(out), false);
+    }
+
+    public static ResultsWriter discarding() {
+        return new ResultsWriter(null, false);
+    }
+
+    public boolean isEnabled() {
+        return channel != null;
+    }
+
+    public ResultsWriter append(String s) {
+        if (channel == null) return this;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            char c = s.charAt(i);
+            buffer.put(c < 128 ? (byte) c : (byte) '?');
+        }
+        return this;
+    }
+
+    public ResultsWriter append(char c) {
+        if (channel == null) return this;
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put(c < 128 ? (byte) c : (byte) '?');
+        return this;
+    }
+
+    public ResultsWriter append(int i) {
+        return channel == null ? this : append(Integer.toString(i));
+    }
+
+    public ResultsWriter append(long l) {
+        return channel == null ? this : append(Long.toString(l));
+    }
+
+    public ResultsWriter append(double d) {
+        return channel == null ? this : append(Double.toString(d));
+    }
+
+    /**
+     * Hands everything buffered so far to the channel.
+     */
+    public void flush() {
+        if (channel != null) {
+            drain();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        if (closeChannel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package org.cloudbus.cloudsim;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Opt-in wall-clock profiler of the simulation loop, enabled by {@link Constants#PROFILE}.
+ *
+ * Probes time the events the broker and the datacenter process, by event tag, and the
+ * allocation policy's entry points. Each probe keeps a count, a total and a nanosecond
+ * histogram. The JVM heap and GC totals are sampled every {@link Constants#PROFILE_INTERVAL}
+ * simulated seconds, with the ratio of simulated to wall-clock time so far.
+ *
+ * {@link #ENABLED} is a static final field, which the JIT treats as a constant, so when
+ * profiling is off the probes compile away.
+ */
+public final class SimulationProfiler {
+    public static final boolean ENABLED = Constants.PROFILE;
+
+    public static final int BROKER = 0;
+    public static final int DATACENTER = 1;
+    private static final int POLICY = 2;
+    private static final String[] COMPONENTS = { "broker", "datacenter", "policy" };
+
+    // Probe columns, in registration order
+    private static int probes;
+    private static int[] component = new int[16];
+    private static String[] name = new String[16];
+    private static long[] count = new long[16];
+    private static long[] totalNanos = new long[16];
+    private static LatencyHistogram[] nanos = new LatencyHistogram[16]; // Recorded in ms, resolved to the ns
+
+    // Event probes of the broker and the datacenter: tags and their probes, scanned linearly
+    private static final int[][] eventTags = { new int[0], new int[0] };
+    private static final int[][] eventProbes = { new int[0], new int[0] };
+    private static final Map<Integer, String> tagNames = new HashMap<>();
+    private static boolean cloudSimTagsNamed;
+
+    // Heap and GC sample columns
+    private static int samples;
+    private static double[] sampleTime = new double[64];
+    private static double[] sampleWall = new double[64];
+    private static double[] heapUsed = new double[64];     // MB
+    private static double[] heapCommitted = new double[64]; // MB
+    private static long[] gcCount = new long[64];
+    private static long[] gcTime = new long[64];           // ms
+    private static double nextSampleTime;
+    private static double lastClock; // CloudSim resets its clock when the run ends
+    private static long startNanos;
+    private static long endNanos;
+    private static long gcCountBase;
+    private static long gcTimeBase;
+
+    private SimulationProfiler() {
+    }
+
+    /**
+     * Registers a policy probe and returns its index, to be kept in a static field.
+     */
+    public static synchronized int probe(String method) {
+        return register(POLICY, method);
+    }
+
+    /**
+     * Names a tag defined outside {@link CloudSimTags}, for the report.
+     */
+    public static synchronized void nameTag(int tag, String tagName) {
+        tagNames.put(tag, tagName);
+    }
+
+    /**
+     * Clears the counts of a previous run in the same JVM and starts the wall clock. Called
+     * when the simulation starts.
+     */
+    public static void begin() {
+        if (!ENABLED) return;
+        Arrays.fill(count, 0);
+        Arrays.fill(totalNanos, 0);
+        for (int i = 0; i < probes; i++) {
+            nanos[i] = new LatencyHistogram();
+        }
+        samples = 0;
+        nextSampleTime = lastClock = 0;
+        gcCountBase = gcCountBase();
+        gcTimeBase = gcTimeBase();
+        startNanos = endNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops the wall clock and takes a last sample. Called when the simulation returns.
+     */
+    public static void end() {
+        if (!ENABLED) return;
+        endNanos = System.nanoTime();
+        sample(lastClock, endNanos);
+    }
+
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records a policy probe started at {@code start}.
+     */
+    public static void stop(int probe, long start) {
+        if (!ENABLED) return;
+        record(probe, System.nanoTime() - start);
+    }
+
+    /**
+     * Records an event of the broker or the datacenter started at {@code start}, and samples
+     * the heap once the clock passes the next sampling time.
+     */
+    public static void stopEvent(int entity, int tag, long start) {
+        if (!ENABLED) return;
+        long now = System.nanoTime();
+        record(eventProbe(entity, tag), now - start);
+        lastClock = CloudSim.clock();
+        if (lastClock >= nextSampleTime) {
+            sample(lastClock, now);
+        }
+    }
+
+    private static void record(int probe, long elapsed) {
+        count[probe]++;
+        totalNanos[probe] += elapsed;
+        nanos[probe].record(elapsed * 1e-6);
+    }
+
+    private static int eventProbe(int entity, int tag) {
+        int[] tags = eventTags[entity];
+        for (int i = 0; i < tags.length; i++) {
+            if (tags[i] == tag) return eventProbes[entity][i];
+        }
+        int probe = register(entity, tagName(tag));
+        eventTags[entity] = Arrays.copyOf(tags, tags.length + 1);
+        eventTags[entity][tags.length] = tag;
+        eventProbes[entity] = Arrays.copyOf(eventProbes[entity], tags.length + 1);
+        eventProbes[entity][tags.length] = probe;
+        return probe;
+    }
+
+    private static int register(int probeComponent, String probeName) {
+        if (probes == name.length) {
+            int capacity = probes * 2;
+            component = Arrays.copyOf(component, capacity);
+            name = Arrays.copyOf(name, capacity);
+            count = Arrays.copyOf(count, capacity);
+            totalNanos = Arrays.copyOf(totalNanos, capacity);
+            nanos = Arrays.copyOf(nanos, capacity);
+        }
+        component[probes] = probeComponent;
+        name[probes] = probeName;
+        nanos[probes] = new LatencyHistogram();
+        return probes++;
+    }
+
+    /**
+     * Name of a tag: a {@link CloudSimTags} constant, skipping the flags that share its values,
+     * or a name given by {@link #nameTag}.
+     */
+    private static synchronized String tagName(int tag) {
+        if (!cloudSimTagsNamed) {
+            for (Field field : CloudSimTags.class.getFields()) {
+                if (field.getType() != int.class || !Modifier.isStatic(field.getModifiers())) continue;
+                if (field.getName().equals("TRUE") || field.getName().equals("FALSE")) continue;
+                try {
+                    tagNames.putIfAbsent(field.getInt(null), field.getName());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            cloudSimTagsNamed = true;
+        }
+        return tagNames.getOrDefault(tag, "TAG_" + tag);
+    }
+
+    private static void sample(double clock, long now) {
+        if (samples == sampleTime.length) {
+            int capacity = samples * 2;
+            sampleTime = Arrays.copyOf(sampleTime, capacity);
+            sampleWall = Arrays.copyOf(sampleWall, capacity);
+            heapUsed = Arrays.copyOf(heapUsed, capacity);
+            heapCommitted = Arrays.copyOf(heapCommitted, capacity);
+            gcCount = Arrays.copyOf(gcCount, capacity);
+            gcTime = Arrays.copyOf(gcTime, capacity);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        sampleTime[samples] = clock;
+        sampleWall[samples] = (now - startNanos) * 1e-9;
+        heapCommitted[samples] = runtime.totalMemory() / 1048576.0;
+        heapUsed[samples] = heapCommitted[samples] - runtime.freeMemory() / 1048576.0;
+        gcCount[samples] = gcCountBase() - gcCountBase;
+        gcTime[samples] = gcTimeBase() - gcTimeBase;
+        samples++;
+        nextSampleTime = (Math.floor(clock / Constants.PROFILE_INTERVAL) + 1) * Constants.PROFILE_INTERVAL;
+    }
+
+    private static long gcCountBase() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcTimeBase() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Writes the SIMULATION_PROFILE section, one row per probe that fired, and the
+     * PROFILE_SAMPLES section. Broker and datacenter events do not overlap, so their shares
+     * of the wall time add up; policy probes run inside them.
+     */
+    public static void report(ResultsWriter consoleOutput, ResultsWriter csvOutput, DecimalFormat dft) {
+        double wall = (endNanos - startNanos) * 1e-9;
+        double simulated = samples > 0 ? sampleTime[samples - 1] : 0;
+        long events = 0;
+        for (int i = 0; i < probes; i++) {
+            if (component[i] != POLICY) {
+                events += count[i];
+            }
+        }
+        consoleOutput.append("\nSimulation Profile (").append(dft.format(simulated)).append(" s simulated in ")
+            .append(dft.format(wall)).append(" s wall, ratio ")
+            .append(dft.format(wall > 0 ? simulated / wall : 0)).append(", ").append(events).append(" events):\n");
+        consoleOutput.append("-----------------------------------------------------------------------------------------------\n");
+        consoleOutput.append("Component  | Probe                            |    Count |  Total ms |  Share |  Mean us |   P99 us\n");
+        consoleOutput.append("-----------------------------------------------------------------------------------------------\n");
+
+        csvOutput.append("SIMULATION_PROFILE\n");
+        csvOutput.append("Component,Probe,Count,Total_ms,Share,Mean_us,P50_us,P99_us,Max_us\n");
+        for (int i : byComponent()) {
+            if (count[i] == 0) continue;
+            double totalMs = totalNanos[i] * 1e-6;
+            double share = wall > 0 ? totalMs / 1000 / wall * 100 : 0;
+            double meanUs = totalNanos[i] * 1e-3 / count[i];
+            double p99Us = nanos[i].getPercentile(99) * 1000;
+            consoleOutput.append(String.format("%-10s | %-32s | %8d | %9s | %5s%% | %8s | %8s\n",
+                COMPONENTS[component[i]], name[i], count[i], dft.format(totalMs), dft.format(share),
+                dft.format(meanUs), dft.format(p99Us)));
+            csvOutput.append(COMPONENTS[component[i]]).append(",").append(name[i]).append(",")
+                .append(count[i]).append(",")
+                .append(dft.format(totalMs)).append(",")
+                .append(dft.format(share)).append(",")
+                .append(dft.format(meanUs)).append(",")
+                .append(dft.format(nanos[i].getPercentile(50) * 1000)).append(",")
+                .append(dft.format(p99Us)).append(",")
+                .append(dft.format(nanos[i].getMax() * 1000)).append("\n");
+        }
+        consoleOutput.append("-----------------------------------------------------------------------------------------------\n");
+        csvOutput.append("\n");
+
+        csvOutput.append("PROFILE_SAMPLES\n");
+        csvOutput.append("Time,Wall_Seconds,Sim_Wall_Ratio,Heap_Used_MB,Heap_Committed_MB,GC_Count,GC_Time_ms\n");
+        for (int s = 0; s < samples; s++) {
+            csvOutput.append(dft.format(sampleTime[s])).append(",")
+                .append(String.format("%.4f", sampleWall[s])).append(",")
+                .append(dft.format(sampleWall[s] > 0 ? sampleTime[s] / sampleWall[s] : 0)).append(",")
+                .append(dft.format(heapUsed[s])).append(",")
+                .append(dft.format(heapCommitted[s])).append(",")
+                .append(gcCount[s]).append(",")
+                .append(gcTime[s]).append("\n");
+        }
+        csvOutput.append("\n");
+        if (samples > 0) {
+            consoleOutput.append("Peak sampled heap: ").append(dft.format(max(heapUsed, samples)))
+                .append(" MB, GC: ").append(gcCount[samples - 1]).append(" collections, ")
+                .append(gcTime[samples - 1]).append(" ms\n");
+        }
+    }
+
+    /**
+     * Probe indexes, broker events first, then datacenter events, then policy methods.
+     */
+    private static int[] byComponent() {
+        int[] order = new int[probes];
+        int n = 0;
+        for (int c = 0; c < COMPONENTS.length; c++) {
+            for (int i = 0; i < probes; i++) {
+                if (component[i] == c) order[n++] = i;
+            }
+        }
+        return order;
+    }
+
+    private static double max(double[] values, int length) {
+        double max = 0;
+        for (int i = 0; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+}
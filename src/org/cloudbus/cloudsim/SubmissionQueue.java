@@ -0,0 +1,54 @@
+package org.cloudbus.cloudsim;
+
+/**
+ * Bounded FIFO of cloudlets that have arrived at the broker but not yet been dispatched to
+ * a VM, together with their arrival times. Backed by a fixed ring buffer, so offering and
+ * polling do not allocate.
+ */
+public class SubmissionQueue {
+    private final Cloudlet[] cloudlets;
+    private final double[] arrivalTimes;
+    private int head;
+    private int size;
+
+    public SubmissionQueue(int capacity) {
+        cloudlets = new Cloudlet[capacity];
+        arrivalTimes = new double[capacity];
+    }
+
+    /**
+     * Appends a cloudlet, or returns false if the queue is full.
+     */
+    public boolean offer(Cloudlet cloudlet, double arrivalTime) {
+        if (size == cloudlets.length) return false;
+        int tail = (head + size) % cloudlets.length;
+        cloudlets[tail] = cloudlet;
+        arrivalTimes[tail] = arrivalTime;
+        size++;
+        return true;
+    }
+
+    /**
+     * Arrival time of the oldest cloudlet; only valid when the queue is not empty.
+     */
+    public double peekArrivalTime() {
+        return arrivalTimes[head];
+    }
+
+    public Cloudlet poll() {
+        if (size == 0) return null;
+        Cloudlet cloudlet = cloudlets[head];
+        cloudlets[head] = null;
+        head = (head + 1) % cloudlets.length;
+        size--;
+        return cloudlet;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
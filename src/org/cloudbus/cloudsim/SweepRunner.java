@@ -0,0 +1,214 @@
+package org.cloudbus.cloudsim;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a grid of simulations concurrently and merges their headline metrics into one table.
+ *
+ * The grid file lists one parameter of {@link Constants} per line with the values to try,
+ * e.g. {@code AUTO_SCALING_THRESHOLD = 0.6, 0.7, 0.8}; every combination is one run. CloudSim
+ * keeps its state in static fields, so each run loads the simulator and this project into its
+ * own class loader, which serves the run's parameters to {@link Constants}. A fixed pool of
+ * worker threads, one per core by default, takes runs in turn within this single warm JVM.
+ *
+ * Each run writes its usual results to {@code <output>/run-NNNN}, and one row per run goes to
+ * {@code <output>/sweep_summary.csv}: the run's parameters followed by its metrics. A run that
+ * throws is logged as failed and its row has no metrics.
+ *
+ * Usage: {@code SweepRunner <grid-file> [workers] [output-dir]}
+ */
+public class SweepRunner {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: SweepRunner <grid-file> [workers] [output-dir]");
+            System.exit(1);
+        }
+        Path gridFile = Paths.get(args[0]);
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path outputDir = Paths.get(args.length > 2 ? args[2] : "sweep");
+
+        LinkedHashMap<String, List<String>> grid = readGrid(gridFile);
+        List<Map<String, String>> runs = expand(grid);
+        URL[] classpath = classpath();
+        Log.printLine("Sweep of " + runs.size() + " runs over " + grid.keySet() + " on " + workers + " workers");
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<Map<String, Double>>> results = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i++) {
+            Map<String, String> parameters = new LinkedHashMap<>(runs.get(i));
+            parameters.putIfAbsent("RESULTS_DIR", outputDir.resolve(String.format("run-%04d", i)).toString());
+            parameters.putIfAbsent("TRACE_LEVEL", "0");
+            results.add(pool.submit(() -> runIsolated(classpath, parameters)));
+        }
+        pool.shutdown();
+
+        try (ResultsWriter summary = ResultsWriter.toFile(outputDir.resolve("sweep_summary.csv"))) {
+            List<String> metricNames = null;
+            for (int i = 0; i < runs.size(); i++) {
+                Map<String, Double> metrics;
+                try {
+                    metrics = results.get(i).get();
+                } catch (Exception e) {
+                    Log.printLine("Run " + i + " failed: " + e.getCause());
+                    metrics = Collections.emptyMap();
+                }
+
+                if (metricNames == null && !metrics.isEmpty()) {
+                    metricNames = new ArrayList<>(metrics.keySet());
+                    summary.append("Run");
+                    for (String name : grid.keySet()) {
+                        summary.append(',').append(name);
+                    }
+                    for (String name : metricNames) {
+                        summary.append(',').append(name);
+                    }
+                    summary.append('\n');
+                }
+                if (metricNames == null) continue;
+
+                summary.append(i);
+                for (String name : grid.keySet()) {
+                    summary.append(',').append(runs.get(i).get(name));
+                }
+                for (String name : metricNames) {
+                    Double value = metrics.get(name);
+                    summary.append(',').append(value != null ? value.toString() : "");
+                }
+                summary.append('\n');
+            }
+        }
+        Log.printLine("Sweep summary saved to " + outputDir.resolve("sweep_summary.csv"));
+    }
+
+    /**
+     * Runs one simulation in a fresh class loader and returns its metrics, rethrowing whatever
+     * stopped the run if it failed.
+     */
+    private static Map<String, Double> runIsolated(URL[] classpath, Map<String, String> parameters) throws Exception {
+        try (RunClassLoader loader = new RunClassLoader(classpath, parameters)) {
+            loader.loadClass("org.cloudbus.cloudsim.Log").getMethod("disable").invoke(null);
+            Class<?> main = loader.loadClass("org.cloudbus.cloudsim.Main");
+            try {
+                main.getMethod("run", String[].class).invoke(null, (Object) new String[0]);
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+
+            Method collect = main.getMethod("collectMetrics");
+            @SuppressWarnings("unchecked")
+            Map<String, Double> metrics = (Map<String, Double>) collect.invoke(null);
+            return metrics;
+        }
+    }
+
+    /**
+     * Reads {@code NAME = v1, v2, ...} lines; blank lines and lines starting with '#' are skipped.
+     */
+    private static LinkedHashMap<String, List<String>> readGrid(Path file) throws IOException {
+        LinkedHashMap<String, List<String>> grid = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int separator = line.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected NAME = values in grid line: " + line);
+            }
+            String name = line.substring(0, separator).trim();
+            try {
+                Constants.class.getField(name);
+            } catch (NoSuchFieldException e) {
+                throw new IllegalArgumentException("Unknown parameter in grid: " + name);
+            }
+
+            List<String> values = new ArrayList<>();
+            for (String value : line.substring(separator + 1).split(",")) {
+                if (!value.trim().isEmpty()) {
+                    values.add(value.trim());
+                }
+            }
+            grid.put(name, values);
+        }
+        return grid;
+    }
+
+    /**
+     * Cartesian product of the grid, varying the last parameter fastest.
+     */
+    private static List<Map<String, String>> expand(LinkedHashMap<String, List<String>> grid) {
+        List<Map<String, String>> runs = new ArrayList<>();
+        runs.add(new LinkedHashMap<>());
+        for (Map.Entry<String, List<String>> parameter : grid.entrySet()) {
+            List<Map<String, String>> next = new ArrayList<>();
+            for (Map<String, String> run : runs) {
+                for (String value : parameter.getValue()) {
+                    Map<String, String> extended = new LinkedHashMap<>(run);
+                    extended.put(parameter.getKey(), value);
+                    next.add(extended);
+                }
+            }
+            runs = next;
+        }
+        return runs;
+    }
+
+    private static URL[] classpath() {
+        String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+        URL[] urls = new URL[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            try {
+                urls[i] = Paths.get(entries[i]).toUri().toURL();
+            } catch (MalformedURLException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Loads CloudSim and this project afresh for one run. Only JDK classes are shared, through
+     * the platform class loader. The run's parameters are served as
+     * {@link Constants#RUN_PARAMETERS_RESOURCE}.
+     */
+    private static class RunClassLoader extends URLClassLoader {
+        private final byte[] parameters;
+
+        RunClassLoader(URL[] classpath, Map<String, String> parameters) {
+            super(classpath, ClassLoader.getPlatformClassLoader());
+            Properties properties = new Properties();
+            properties.putAll(parameters);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                properties.store(out, null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.parameters = out.toByteArray();
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            if (Constants.RUN_PARAMETERS_RESOURCE.equals(name)) {
+                return new ByteArrayInputStream(parameters);
+            }
+            return super.getResourceAsStream(name);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes per-tick metrics as a compact columnar binary file that the dashboard streams and
+ * downsamples. Rows are buffered in primitive arrays and written in chunks of a fixed number
+ * of rows, each chunk holding its times followed by one block per column, so a reader can
+ * decode a chunk as soon as it has arrived.
+ *
+ * Layout, little-endian:
+ * <pre>
+ * header: "CSTS", int32 version, int32 column count, per column uint16 name length + ASCII name
+ * chunk:  int32 rows, float64[rows] times, per column float32[rows] values
+ * </pre>
+ * A writer created by {@link #discarding()} ignores every row.
+ */
+public class TimeSeriesWriter implements AutoCloseable {
+    private static final byte[] MAGIC = { 'C', 'S', 'T', 'S' };
+    private static final int VERSION = 1;
+
+    private final FileChannel channel;
+    private final int columns;
+    private final int chunkRows;
+    private final double[] times;
+    private final float[] values; // [column * chunkRows + row]
+    private final ByteBuffer buffer;
+    private int rows;
+
+    private TimeSeriesWriter(FileChannel channel, List<String> names, int chunkRows) {
+        this.channel = channel;
+        this.columns = names.size();
+        this.chunkRows = chunkRows;
+        this.times = new double[chunkRows];
+        this.values = new float[columns * chunkRows];
+        this.buffer = ByteBuffer.allocateDirect(4 + chunkRows * (8 + 4 * columns)).order(ByteOrder.LITTLE_ENDIAN);
+        writeHeader(names);
+    }
+
+    /**
+     * Creates or truncates a file, creating its parent directory if needed.
+     */
+    public static TimeSeriesWriter toFile(Path file, List<String> names, int chunkRows) {
+        if (chunkRows < 1) {
+            throw new IllegalArgumentException("TIME_SERIES_CHUNK_ROWS must be at least 1");
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            return new TimeSeriesWriter(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), names, chunkRows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static TimeSeriesWriter discarding() {
+        return new TimeSeriesWriter(null, List.of(), 1);
+    }
+
+    public boolean isEnabled() {
+        return channel != null;
+    }
+
+    /**
+     * Appends a row; {@code row} holds one value per column, in the order of the names.
+     */
+    public void append(double time, double[] row) {
+        if (channel == null) return;
+        times[rows] = time;
+        for (int c = 0; c < columns; c++) {
+            values[c * chunkRows + rows] = (float) row[c];
+        }
+        if (++rows == chunkRows) {
+            writeChunk();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (channel == null) return;
+        if (rows > 0) {
+            writeChunk();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeHeader(List<String> names) {
+        if (channel == null) return;
+        ByteBuffer header = ByteBuffer.allocate(12 + names.stream().mapToInt(n -> 2 + n.length()).sum())
+            .order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(VERSION).putInt(names.size());
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+            header.putShort((short) bytes.length).put(bytes);
+        }
+        header.flip();
+        write(header);
+    }
+
+    private void writeChunk() {
+        buffer.clear();
+        buffer.putInt(rows);
+        for (int r = 0; r < rows; r++) {
+            buffer.putDouble(times[r]);
+        }
+        for (int c = 0; c < columns; c++) {
+            int base = c * chunkRows;
+            for (int r = 0; r < rows; r++) {
+                buffer.putFloat(values[base + r]);
+            }
+        }
+        buffer.flip();
+        write(buffer);
+        rows = 0;
+    }
+
+    private void write(ByteBuffer data) {
+        try {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streams cloudlets from a workload trace through a buffered NIO file channel.
+ *
+ * Two formats are supported:
+ * <ul>
+ *   <li>SWF (Standard Workload Format): whitespace separated, ';' comments. Submit time,
+ *       run time and allocated (or requested) processors are used; the cloudlet length is
+ *       the run time multiplied by the PE rating in MIPS.</li>
+ *   <li>CSV: {@code arrival_time,length,pes[,utilization_profile]} with '#' comments and an
+ *       optional header. See {@link CloudletGenerator#createUtilizationModel(String, int)} for the
+ *       profile syntax; a missing profile means full utilization.</li>
+ * </ul>
+ * Only the line being parsed and one pending job are held in memory. Jobs must be sorted by
+ * arrival time, as trace archives publish them.
+ */
+public class TraceWorkloadReader implements WorkloadSource {
+    public enum Format { SWF, CSV }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // SWF field positions (0-based)
+    private static final int SWF_SUBMIT_TIME = 1;
+    private static final int SWF_RUN_TIME = 3;
+    private static final int SWF_NUM_PROC = 4;
+    private static final int SWF_REQ_NUM_PROC = 7;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final Format format;
+    private final int userId;
+    private final double mipsRating;
+    private byte[] line = new byte[256];
+    private boolean endOfFile;
+    private int nextCloudletId;
+
+    // Next job, parsed but not yet released
+    private boolean pending;
+    private double pendingArrival;
+    private long pendingLength;
+    private int pendingPes;
+    private String pendingProfile;
+
+    public TraceWorkloadReader(Path path, Format format, int userId, double mipsRating, int firstCloudletId) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open workload trace " + path, e);
+        }
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.buffer.flip();
+        this.format = format;
+        this.userId = userId;
+        this.mipsRating = mipsRating;
+        this.nextCloudletId = firstCloudletId;
+    }
+
+    /**
+     * Picks the format from the file extension: ".swf" is SWF, anything else CSV.
+     */
+    public static Format detectFormat(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".swf") ? Format.SWF : Format.CSV;
+    }
+
+    @Override
+    public double nextArrivalTime() {
+        if (!pending) {
+            advance();
+        }
+        return pending ? pendingArrival : Double.MAX_VALUE;
+    }
+
+    @Override
+    public Cloudlet next() {
+        if (nextArrivalTime() == Double.MAX_VALUE) {
+            throw new IllegalStateException("Workload trace is exhausted");
+        }
+        pending = false;
+
+        int id = nextCloudletId++;
+        Cloudlet cloudlet = new Cloudlet(
+            id, pendingLength, pendingPes,
+            Constants.CLOUDLET_FILE_SIZE, Constants.CLOUDLET_OUTPUT_SIZE,
+            CloudletGenerator.createUtilizationModel(pendingProfile, id),
+            CloudletGenerator.createRamUtilizationModel(id), CloudletGenerator.createBwUtilizationModel(id)
+        );
+        cloudlet.setUserId(userId);
+        return cloudlet;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void advance() {
+        int length;
+        while ((length = readLine()) >= 0) {
+            String text = new String(line, 0, length, StandardCharsets.US_ASCII).trim();
+            if (text.isEmpty()) continue;
+            if (format == Format.SWF ? parseSwf(text) : parseCsv(text)) {
+                pending = true;
+                return;
+            }
+        }
+    }
+
+    private boolean parseSwf(String text) {
+        if (text.startsWith(";")) return false;
+
+        String[] fields = text.split("\\s+");
+        if (fields.length <= SWF_REQ_NUM_PROC) return false;
+
+        double runTime = Double.parseDouble(fields[SWF_RUN_TIME]);
+        int pes = Integer.parseInt(fields[SWF_NUM_PROC]);
+        if (pes <= 0) {
+            pes = Integer.parseInt(fields[SWF_REQ_NUM_PROC]);
+        }
+        // Cancelled or unknown jobs carry -1 run time or processors
+        if (runTime <= 0 || pes <= 0) return false;
+
+        pendingArrival = Double.parseDouble(fields[SWF_SUBMIT_TIME]);
+        pendingLength = Math.max(1, (long) (runTime * mipsRating));
+        pendingPes = pes;
+        pendingProfile = null;
+        return true;
+    }
+
+    private boolean parseCsv(String text) {
+        if (text.startsWith("#")) return false;
+
+        String[] fields = text.split(",");
+        if (fields.length < 3) return false;
+        try {
+            pendingArrival = Double.parseDouble(fields[0].trim());
+            pendingLength = Long.parseLong(fields[1].trim());
+            pendingPes = Integer.parseInt(fields[2].trim());
+        } catch (NumberFormatException e) {
+            return false; // Header line
+        }
+        pendingProfile = fields.length > 3 ? fields[3].trim() : null;
+        return pendingLength > 0 && pendingPes > 0;
+    }
+
+    /**
+     * Reads the next line into {@code line}, returning its length or -1 at end of file.
+     */
+    private int readLine() {
+        int length = 0;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                if (endOfFile || !fill()) {
+                    return length > 0 ? length : -1;
+                }
+            }
+            byte b = buffer.get();
+            if (b == '\n') return length;
+            if (b == '\r') continue;
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = b;
+        }
+    }
+
+    private boolean fill() {
+        try {
+            buffer.clear();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) {
+                endOfFile = true;
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
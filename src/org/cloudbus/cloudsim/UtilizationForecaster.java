@@ -0,0 +1,118 @@
+package org.cloudbus.cloudsim;
+
+import java.util.Arrays;
+
+/**
+ * Per-VM forecast of the PEs a VM's cloudlets demand, by Holt's linear trend method with an
+ * optional additive seasonal profile. Each VM keeps a level, a trend per second and, if enabled,
+ * one seasonal offset per slot of the season, so memory does not grow with simulated time.
+ *
+ * Samples may come at irregular times (see {@link AdaptiveSampler}); the trend is applied over
+ * the actual gap between samples. Every sample after the first is also scored against the
+ * forecast made for its time, as a fraction of the VM's PEs.
+ */
+public class UtilizationForecaster {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final double alpha;      // Level smoothing
+    private final double beta;       // Trend smoothing
+    private final double gamma;      // Seasonal smoothing
+    private final int seasonLength;  // Slots per season, 0 without a seasonal term
+    private final double slotLength; // Seconds per seasonal slot
+
+    private double[] level = new double[INITIAL_CAPACITY];
+    private double[] trend = new double[INITIAL_CAPACITY];
+    private double[] lastSampleTime = new double[INITIAL_CAPACITY];
+    private double[] season;         // seasonLength offsets per VM, VM after VM
+    private boolean[] started = new boolean[INITIAL_CAPACITY];
+
+    private double absoluteErrorSum;
+    private long scoredSamples;
+
+    public UtilizationForecaster(double alpha, double beta, double gamma, int seasonLength, double slotLength) {
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = gamma;
+        this.seasonLength = seasonLength;
+        this.slotLength = slotLength;
+        this.season = new double[INITIAL_CAPACITY * seasonLength];
+    }
+
+    /**
+     * Feeds the PEs demanded by a VM's cloudlets at {@code time}.
+     */
+    public void observe(int vmId, double time, double demand, int pes) {
+        ensureCapacity(vmId);
+        if (!started[vmId]) {
+            started[vmId] = true;
+            level[vmId] = demand;
+            trend[vmId] = 0;
+            lastSampleTime[vmId] = time;
+            return;
+        }
+
+        double elapsed = time - lastSampleTime[vmId];
+        if (elapsed <= 0) return;
+
+        absoluteErrorSum += Math.abs(forecast(vmId, time) - demand) / pes;
+        scoredSamples++;
+
+        double offset = 0;
+        int slot = -1;
+        if (seasonLength > 0) {
+            slot = vmId * seasonLength + seasonSlot(time);
+            offset = season[slot];
+        }
+        double previousLevel = level[vmId];
+        level[vmId] = alpha * (demand - offset) + (1 - alpha) * (previousLevel + trend[vmId] * elapsed);
+        trend[vmId] = beta * (level[vmId] - previousLevel) / elapsed + (1 - beta) * trend[vmId];
+        if (slot >= 0) {
+            season[slot] = gamma * (demand - level[vmId]) + (1 - gamma) * offset;
+        }
+        lastSampleTime[vmId] = time;
+    }
+
+    /**
+     * Forecast demand of a VM at {@code time}, never negative. Zero before its first sample.
+     */
+    public double forecast(int vmId, double time) {
+        if (vmId >= started.length || !started[vmId]) return 0;
+        double value = level[vmId] + trend[vmId] * (time - lastSampleTime[vmId]);
+        if (seasonLength > 0) {
+            value += season[vmId * seasonLength + seasonSlot(time)];
+        }
+        return Math.max(0, value);
+    }
+
+    /**
+     * Time of the last sample of a VM, NaN before its first one.
+     */
+    public double getLastSampleTime(int vmId) {
+        return vmId < started.length && started[vmId] ? lastSampleTime[vmId] : Double.NaN;
+    }
+
+    /**
+     * Mean absolute error of the forecasts, as a fraction of the VMs' PEs.
+     */
+    public double getMeanAbsoluteError() {
+        return scoredSamples > 0 ? absoluteErrorSum / scoredSamples : 0;
+    }
+
+    public long getScoredSamples() {
+        return scoredSamples;
+    }
+
+    private int seasonSlot(double time) {
+        return (int) Math.floorMod((long) Math.floor(time / slotLength), (long) seasonLength);
+    }
+
+    private void ensureCapacity(int vmId) {
+        if (vmId < started.length) return;
+        int capacity = Math.max(vmId + 1, started.length * 2);
+        level = Arrays.copyOf(level, capacity);
+        trend = Arrays.copyOf(trend, capacity);
+        lastSampleTime = Arrays.copyOf(lastSampleTime, capacity);
+        started = Arrays.copyOf(started, capacity);
+        season = Arrays.copyOf(season, capacity * seasonLength);
+    }
+}
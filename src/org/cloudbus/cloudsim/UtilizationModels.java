@@ -0,0 +1,193 @@
+package org.cloudbus.cloudsim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * CPU utilization models whose memory does not grow with simulated time. The stock
+ * {@link UtilizationModelStochastic} keeps every value it has returned in a map so that it can
+ * return it again; these models instead derive each value from a counter-based hash of their
+ * seed and the time, or from a few primitive fields, so a value can be recomputed at any time.
+ */
+public final class UtilizationModels {
+    private UtilizationModels() {
+    }
+
+    /**
+     * SplitMix64 hash of a seed and a counter, e.g. a cloudlet's seed and a time step.
+     */
+    public static long hash(long seed, long counter) {
+        long z = seed + (counter + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Hash of a seed and a counter as a uniform value in [0, 1).
+     */
+    public static double uniform(long seed, long counter) {
+        return (hash(seed, counter) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Reads a utilization trace: one value per line, a fraction or, above 1, a percentage as in
+     * the PlanetLab traces. Blank lines and lines starting with '#' are skipped.
+     */
+    public static float[] loadTrace(Path path) {
+        float[] values = new float[1024];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                double value = Double.parseDouble(line);
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                values[count++] = (float) Math.max(0.0, Math.min(1.0, value > 1 ? value / 100 : value));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read utilization trace " + path, e);
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("Utilization trace " + path + " has no values");
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Uniform random utilization, a new value at every distinct time as with
+     * {@link UtilizationModelStochastic}, hashed from the seed and the time's bits.
+     */
+    public static class Stochastic implements UtilizationModel {
+        private final long seed;
+
+        public Stochastic(long seed) {
+            this.seed = seed;
+        }
+
+        @Override
+        public double getUtilization(double time) {
+            return uniform(seed, Double.doubleToLongBits(time));
+        }
+    }
+
+    /**
+     * Random walk in [0, 1]: every {@code interval} seconds the utilization moves up or down by
+     * up to {@code step}, reflecting at the bounds. The last {@value #RING_SIZE} steps are kept
+     * in a ring, as the scheduler and the monitor only ask for recent times; an older time is
+     * replayed from the start.
+     */
+    public static class RandomWalk implements UtilizationModel {
+        private static final int RING_SIZE = 8;
+
+        private final long seed;
+        private final double initialUtilization;
+        private final double step;
+        private final double interval;
+        private final double[] ring = new double[RING_SIZE]; // Utilization of step k at [k % RING_SIZE]
+        private long head;                                   // Latest step in the ring
+
+        public RandomWalk(long seed, double initialUtilization, double step, double interval) {
+            this.seed = seed;
+            this.initialUtilization = initialUtilization;
+            this.step = step;
+            this.interval = interval;
+            this.ring[0] = initialUtilization;
+        }
+
+        @Override
+        public double getUtilization(double time) {
+            long k = Math.max(0, (long) Math.floor(time / interval));
+            if (k > head) {
+                double value = ring[(int) (head % RING_SIZE)];
+                while (head < k) {
+                    head++;
+                    value = move(value, head);
+                    ring[(int) (head % RING_SIZE)] = value;
+                }
+                return value;
+            }
+            if (head - k < RING_SIZE) {
+                return ring[(int) (k % RING_SIZE)];
+            }
+            double value = initialUtilization;
+            for (long i = 1; i <= k; i++) {
+                value = move(value, i);
+            }
+            return value;
+        }
+
+        private double move(double value, long k) {
+            double next = value + step * (2 * uniform(seed, k) - 1);
+            if (next < 0) return -next;
+            if (next > 1) return 2 - next;
+            return next;
+        }
+    }
+
+    /**
+     * Sinusoidal utilization around {@code mean} with the given amplitude and period, plus
+     * uniform noise of width {@code noise} hashed from the seed and the time. The phase is
+     * drawn from the seed so that cloudlets do not peak together.
+     */
+    public static class Periodic implements UtilizationModel {
+        private final long seed;
+        private final double mean;
+        private final double amplitude;
+        private final double period;
+        private final double noise;
+        private final double phase;
+
+        public Periodic(long seed, double mean, double amplitude, double period, double noise) {
+            this.seed = seed;
+            this.mean = mean;
+            this.amplitude = amplitude;
+            this.period = period;
+            this.noise = noise;
+            this.phase = 2 * Math.PI * uniform(seed, -1);
+        }
+
+        @Override
+        public double getUtilization(double time) {
+            double value = mean + amplitude * Math.sin(2 * Math.PI * time / period + phase);
+            if (noise > 0) {
+                value += noise * (uniform(seed, Double.doubleToLongBits(time)) - 0.5);
+            }
+            return Math.max(0.0, Math.min(1.0, value));
+        }
+    }
+
+    /**
+     * Replays a utilization trace with one sample every {@code interval} seconds, interpolating
+     * linearly between samples and wrapping around at its end. The samples are shared by every
+     * cloudlet replaying the trace; each starts at its own offset into it.
+     */
+    public static class TraceBacked implements UtilizationModel {
+        private final float[] samples;
+        private final double interval;
+        private final int offset;
+
+        public TraceBacked(float[] samples, double interval, int offset) {
+            this.samples = samples;
+            this.interval = interval;
+            this.offset = Math.floorMod(offset, samples.length);
+        }
+
+        @Override
+        public double getUtilization(double time) {
+            double position = Math.max(0, time) / interval;
+            long k = (long) position;
+            int i = (int) ((offset + k) % samples.length);
+            int j = i + 1 == samples.length ? 0 : i + 1;
+            double fraction = position - k;
+            return samples[i] + (samples[j] - samples[i]) * fraction;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plans consolidation rounds: empties the least-loaded active hosts by moving their VMs
+ * onto other active hosts with best-fit-decreasing over MIPS, RAM, BW and storage.
+ *
+ * Planning works on a snapshot of host capacity, so nothing is changed until the returned
+ * migrations are executed. A host is only evacuated if all of its VMs fit elsewhere without
+ * pushing any target above the utilization ceiling, and a round never plans more than the
+ * configured number of migrations. With many hosts the best-fit search for each VM is split
+ * across the fork-join pool, in leaves of at most {@code MAX_LEAF_SIZE} hosts and at least
+ * four of them.
+ */
+public class VmConsolidator {
+    private static final int MAX_LEAF_SIZE = 256;
+
+    private final int maxMigrations;
+    private final double utilizationCeiling;
+    private final int parallelThreshold;
+    private final int leafSize;
+
+    // Capacity snapshot, indexed by position in the host list
+    private double[] totalMips;
+    private double[] freeMips;
+    private double[] peCapacity;
+    private int[] freeRam;
+    private long[] freeBw;
+    private long[] freeStorage;
+    private boolean[] usable;
+
+    public VmConsolidator(int maxMigrations, double utilizationCeiling, int parallelThreshold) {
+        this.maxMigrations = maxMigrations;
+        this.utilizationCeiling = utilizationCeiling;
+        this.parallelThreshold = parallelThreshold;
+        this.leafSize = Math.max(1, Math.min(MAX_LEAF_SIZE, parallelThreshold / 4));
+    }
+
+    /**
+     * Returns the planned migrations in CloudSim's format, each map holding the "vm" to move
+     * and the target "host".
+     */
+    public List<Map<String, Object>> plan(List<? extends Host> hosts) {
+        List<Map<String, Object>> migrations = new ArrayList<>();
+        int n = hosts.size();
+        snapshot(hosts);
+
+        // Evacuation candidates: active hosts, least loaded first
+        List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (usable[i] && canEvacuate(hosts.get(i))) {
+                sources.add(i);
+            }
+        }
+        sources.sort(Comparator.comparingDouble((Integer i) -> totalMips[i] - freeMips[i]).thenComparingInt(i -> i));
+
+        boolean[] received = new boolean[n];
+        for (int source : sources) {
+            List<Vm> vms = new ArrayList<>(hosts.get(source).getVmList());
+            if (received[source] || migrations.size() + vms.size() > maxMigrations) continue;
+
+            vms.sort(Comparator.comparingDouble((Vm vm) -> -vm.getNumberOfPes() * vm.getMips())
+                .thenComparingInt(vm -> -vm.getRam())
+                .thenComparingInt(Vm::getId));
+
+            // The source cannot take its own VMs back
+            usable[source] = false;
+            int[] targets = new int[vms.size()];
+            int placed = 0;
+            for (Vm vm : vms) {
+                int target = findBestFit(vm);
+                if (target < 0) break;
+                reserve(target, vm, 1);
+                targets[placed++] = target;
+            }
+
+            if (placed < vms.size()) {
+                for (int i = 0; i < placed; i++) {
+                    reserve(targets[i], vms.get(i), -1);
+                }
+                usable[source] = true;
+                continue;
+            }
+
+            for (int i = 0; i < placed; i++) {
+                received[targets[i]] = true;
+                Map<String, Object> migrate = new HashMap<>();
+                migrate.put("vm", vms.get(i));
+                migrate.put("host", hosts.get(targets[i]));
+                migrations.add(migrate);
+            }
+        }
+        return migrations;
+    }
+
+    /**
+     * Whether moving the VM onto the host keeps the host's allocated MIPS within the ceiling.
+     * A planned migration is checked again when it runs, as VMs may have grown since.
+     */
+    public boolean isWithinCeiling(Host host, Vm vm) {
+        double allocated = host.getTotalMips() - host.getVmScheduler().getAvailableMips();
+        return allocated + vm.getNumberOfPes() * vm.getMips() <= utilizationCeiling * host.getTotalMips();
+    }
+
+    private void snapshot(List<? extends Host> hosts) {
+        int n = hosts.size();
+        totalMips = new double[n];
+        freeMips = new double[n];
+        peCapacity = new double[n];
+        freeRam = new int[n];
+        freeBw = new long[n];
+        freeStorage = new long[n];
+        usable = new boolean[n];
+
+        for (int i = 0; i < n; i++) {
+            Host host = hosts.get(i);
+            totalMips[i] = host.getTotalMips();
+            freeMips[i] = host.getVmScheduler().getAvailableMips();
+            peCapacity[i] = host.getVmScheduler().getPeCapacity();
+            freeRam[i] = host.getRamProvisioner().getAvailableRam();
+            freeBw[i] = host.getBwProvisioner().getAvailableBw();
+            freeStorage[i] = host.getStorage();
+            usable[i] = !host.getVmList().isEmpty();
+        }
+    }
+
+    private boolean canEvacuate(Host host) {
+        for (Vm vm : host.getVmList()) {
+            if (vm.isInMigration() || vm.isBeingInstantiated()) return false;
+        }
+        return true;
+    }
+
+    private void reserve(int position, Vm vm, int sign) {
+        freeMips[position] -= sign * vm.getNumberOfPes() * vm.getMips();
+        freeRam[position] -= sign * vm.getRam();
+        freeBw[position] -= sign * vm.getBw();
+        freeStorage[position] -= sign * vm.getSize();
+    }
+
+    private int findBestFit(Vm vm) {
+        if (freeMips.length >= parallelThreshold) {
+            return ForkJoinPool.commonPool().invoke(new BestFitTask(vm, 0, freeMips.length));
+        }
+        return bestFit(vm, 0, freeMips.length);
+    }
+
+    /**
+     * Best fit in [from, to): the usable host left with the least free MIPS after taking
+     * the VM, lowest position on ties.
+     */
+    private int bestFit(Vm vm, int from, int to) {
+        int best = -1;
+        for (int i = from; i < to; i++) {
+            if (fits(i, vm) && (best < 0 || remaining(i, vm) < remaining(best, vm))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private boolean fits(int position, Vm vm) {
+        double mips = vm.getNumberOfPes() * vm.getMips();
+        return usable[position]
+            && peCapacity[position] >= vm.getMips()
+            && freeMips[position] >= mips
+            && freeRam[position] >= vm.getRam()
+            && freeBw[position] >= vm.getBw()
+            && freeStorage[position] >= vm.getSize()
+            && (totalMips[position] - freeMips[position] + mips) <= utilizationCeiling * totalMips[position];
+    }
+
+    private double remaining(int position, Vm vm) {
+        return freeMips[position] - vm.getNumberOfPes() * vm.getMips();
+    }
+
+    private class BestFitTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        private final Vm vm;
+        private final int from;
+        private final int to;
+
+        BestFitTask(Vm vm, int from, int to) {
+            this.vm = vm;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= leafSize) {
+                return bestFit(vm, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            BestFitTask left = new BestFitTask(vm, from, middle);
+            left.fork();
+            int right = new BestFitTask(vm, middle, to).compute();
+            int l = left.join();
+            if (l < 0) return right;
+            if (right < 0) return l;
+            return remaining(right, vm) < remaining(l, vm) ? right : l;
+        }
+    }
+}
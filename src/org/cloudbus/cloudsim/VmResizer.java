@@ -0,0 +1,132 @@
+package org.cloudbus.cloudsim;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resizes a running VM in place through its host's VmScheduler and RAM/BW provisioners,
+ * or moves it with a new size to another host, keeping the same {@code Vm} object.
+ *
+ * Both operations are all-or-nothing: if any resource cannot be provisioned, every
+ * provision made so far is undone and the VM is left exactly as it was. The VM's cloudlet
+ * scheduler is brought up to date with the old MIPS share before the resize and handed the
+ * new share afterwards, so running cloudlets keep their progress.
+ */
+public class VmResizer {
+
+    /**
+     * Grows or shrinks a VM on the host it is running on.
+     */
+    public static boolean resize(Host host, Vm vm, int newPes, int newRam, long newBw) {
+        VmScheduler scheduler = host.getVmScheduler();
+        int oldPes = vm.getNumberOfPes();
+        int oldRam = vm.getRam();
+        long oldBw = vm.getBw();
+        int oldAllocatedRam = host.getRamProvisioner().getAllocatedRamForVm(vm);
+        long oldAllocatedBw = host.getBwProvisioner().getAllocatedBwForVm(vm);
+        List<Double> oldMips = copy(scheduler.getAllocatedMipsForVm(vm));
+
+        vm.updateVmProcessing(CloudSim.clock(), oldMips);
+
+        vm.setRam(newRam);
+        if (!host.getRamProvisioner().allocateRamForVm(vm, newRam)) {
+            vm.setRam(oldRam);
+            host.getRamProvisioner().allocateRamForVm(vm, oldAllocatedRam);
+            return false;
+        }
+
+        vm.setBw(newBw);
+        if (!host.getBwProvisioner().allocateBwForVm(vm, newBw)) {
+            vm.setBw(oldBw);
+            host.getBwProvisioner().allocateBwForVm(vm, oldAllocatedBw);
+            vm.setRam(oldRam);
+            host.getRamProvisioner().allocateRamForVm(vm, oldAllocatedRam);
+            return false;
+        }
+
+        scheduler.deallocatePesForVm(vm);
+        if (!scheduler.allocatePesForVm(vm, mipsShare(vm, newPes))) {
+            scheduler.allocatePesForVm(vm, oldMips);
+            vm.setBw(oldBw);
+            host.getBwProvisioner().allocateBwForVm(vm, oldAllocatedBw);
+            vm.setRam(oldRam);
+            host.getRamProvisioner().allocateRamForVm(vm, oldAllocatedRam);
+            return false;
+        }
+
+        vm.setNumberOfPes(newPes);
+        vm.updateVmProcessing(CloudSim.clock(), scheduler.getAllocatedMipsForVm(vm));
+        return true;
+    }
+
+    /**
+     * Moves a VM from {@code source} to {@code target} with the given size. The target is
+     * fully provisioned before anything is released on the source.
+     */
+    public static boolean migrate(Host source, Host target, Vm vm, int newPes, int newRam, long newBw) {
+        if (source == target) {
+            return resize(source, vm, newPes, newRam, newBw);
+        }
+        if (!canHost(target, vm, newPes, newRam, newBw)) {
+            return false;
+        }
+
+        int oldRam = vm.getRam();
+        long oldBw = vm.getBw();
+        vm.updateVmProcessing(CloudSim.clock(), copy(source.getVmScheduler().getAllocatedMipsForVm(vm)));
+
+        vm.setRam(newRam);
+        vm.setBw(newBw);
+        if (!target.getRamProvisioner().allocateRamForVm(vm, newRam)) {
+            vm.setRam(oldRam);
+            vm.setBw(oldBw);
+            return false;
+        }
+        if (!target.getBwProvisioner().allocateBwForVm(vm, newBw)) {
+            target.getRamProvisioner().deallocateRamForVm(vm);
+            vm.setRam(oldRam);
+            vm.setBw(oldBw);
+            return false;
+        }
+        if (!target.getVmScheduler().allocatePesForVm(vm, mipsShare(vm, newPes))) {
+            target.getBwProvisioner().deallocateBwForVm(vm);
+            target.getRamProvisioner().deallocateRamForVm(vm);
+            vm.setRam(oldRam);
+            vm.setBw(oldBw);
+            return false;
+        }
+
+        // Release the source; vmDestroy only looks up provisions by uid, so the new size is fine
+        source.vmDestroy(vm);
+
+        target.setStorage(target.getStorage() - vm.getSize());
+        target.getVmList().add(vm);
+        vm.setHost(target);
+        vm.setNumberOfPes(newPes);
+        vm.setCurrentAllocatedRam(target.getRamProvisioner().getAllocatedRamForVm(vm));
+        vm.setCurrentAllocatedBw(target.getBwProvisioner().getAllocatedBwForVm(vm));
+        vm.updateVmProcessing(CloudSim.clock(), target.getVmScheduler().getAllocatedMipsForVm(vm));
+        return true;
+    }
+
+    /**
+     * Whether a host that is not yet running the VM could take it with the given size.
+     */
+    public static boolean canHost(Host host, Vm vm, int pes, int ram, long bw) {
+        return host.getStorage() >= vm.getSize()
+            && host.getVmScheduler().getPeCapacity() >= vm.getMips()
+            && host.getVmScheduler().getAvailableMips() >= pes * vm.getMips()
+            && host.getRamProvisioner().getAvailableRam() >= ram
+            && host.getBwProvisioner().getAvailableBw() >= bw;
+    }
+
+    private static List<Double> mipsShare(Vm vm, int pes) {
+        return new ArrayList<>(Collections.nCopies(pes, vm.getMips()));
+    }
+
+    private static List<Double> copy(List<Double> mips) {
+        return mips != null ? new ArrayList<>(mips) : new ArrayList<>();
+    }
+}
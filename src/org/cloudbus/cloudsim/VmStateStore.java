@@ -0,0 +1,341 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+
+/**
+ * Per-VM auto-scaling state kept in primitive columns indexed by VM id.
+ *
+ * Columns grow by doubling when a larger id is registered, so the per-tick path
+ * (utilization updates, cooldown checks) does plain array reads and writes without
+ * hashing or boxing. Map views are provided for reporting; they are read-only and
+ * only box values when they are read.
+ */
+public class VmStateStore {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Vm[] vms;
+    private boolean[] registered;
+    private boolean[] allocated;
+    private int[] originalPes;
+    private int[] originalRam;
+    private long[] originalBw;
+    private int[] scalingCount;
+    private double[] lastScalingTime;
+    private double[] utilization;
+    private double[] lowSince; // Start of the current run of samples under the scale-down threshold, NaN if none
+    private double[] ramUtilization;
+    private double[] bwUtilization;
+    private double[] ramLowSince; // As lowSince, for the RAM and BW utilization
+    private double[] bwLowSince;
+    private int maxId = -1;
+
+    public VmStateStore() {
+        vms = new Vm[INITIAL_CAPACITY];
+        registered = new boolean[INITIAL_CAPACITY];
+        allocated = new boolean[INITIAL_CAPACITY];
+        originalPes = new int[INITIAL_CAPACITY];
+        originalRam = new int[INITIAL_CAPACITY];
+        originalBw = new long[INITIAL_CAPACITY];
+        scalingCount = new int[INITIAL_CAPACITY];
+        lastScalingTime = new double[INITIAL_CAPACITY];
+        utilization = new double[INITIAL_CAPACITY];
+        lowSince = new double[INITIAL_CAPACITY];
+        ramUtilization = new double[INITIAL_CAPACITY];
+        bwUtilization = new double[INITIAL_CAPACITY];
+        ramLowSince = new double[INITIAL_CAPACITY];
+        bwLowSince = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Marks a VM as allocated. The first registration of an id records its original size;
+     * later ones (e.g. after a migration) keep the scaling history of that id.
+     */
+    public void register(Vm vm) {
+        int id = vm.getId();
+        ensureCapacity(id);
+        if (!registered[id]) {
+            registered[id] = true;
+            originalPes[id] = vm.getNumberOfPes();
+            originalRam[id] = vm.getRam();
+            originalBw[id] = vm.getBw();
+            scalingCount[id] = 0;
+            lastScalingTime[id] = 0.0;
+        }
+        vms[id] = vm;
+        allocated[id] = true;
+        utilization[id] = 0.0;
+        lowSince[id] = Double.NaN;
+        ramUtilization[id] = 0.0;
+        bwUtilization[id] = 0.0;
+        ramLowSince[id] = Double.NaN;
+        bwLowSince[id] = Double.NaN;
+        maxId = Math.max(maxId, id);
+    }
+
+    /**
+     * Marks a VM as no longer allocated. Its scaling history is kept for reporting.
+     */
+    public void release(Vm vm) {
+        int id = vm.getId();
+        if (id < vms.length && vms[id] == vm) {
+            allocated[id] = false;
+        }
+    }
+
+    public boolean isAllocated(int vmId) {
+        return vmId >= 0 && vmId < allocated.length && allocated[vmId];
+    }
+
+    public int getMaxId() {
+        return maxId;
+    }
+
+    public Vm getVm(int vmId) {
+        return vms[vmId];
+    }
+
+    public double getUtilization(int vmId) {
+        return utilization[vmId];
+    }
+
+    public void setUtilization(int vmId, double value) {
+        utilization[vmId] = value;
+    }
+
+    public double getLastScalingTime(int vmId) {
+        return lastScalingTime[vmId];
+    }
+
+    public void setLastScalingTime(int vmId, double time) {
+        lastScalingTime[vmId] = time;
+    }
+
+    public int getOriginalPes(int vmId) {
+        return originalPes[vmId];
+    }
+
+    public int getOriginalRam(int vmId) {
+        return originalRam[vmId];
+    }
+
+    public long getOriginalBw(int vmId) {
+        return originalBw[vmId];
+    }
+
+    public double getLowSince(int vmId) {
+        return lowSince[vmId];
+    }
+
+    public void setLowSince(int vmId, double time) {
+        lowSince[vmId] = time;
+    }
+
+    public double getRamUtilization(int vmId) {
+        return ramUtilization[vmId];
+    }
+
+    public void setRamUtilization(int vmId, double value) {
+        ramUtilization[vmId] = value;
+    }
+
+    public double getBwUtilization(int vmId) {
+        return bwUtilization[vmId];
+    }
+
+    public void setBwUtilization(int vmId, double value) {
+        bwUtilization[vmId] = value;
+    }
+
+    public double getRamLowSince(int vmId) {
+        return ramLowSince[vmId];
+    }
+
+    public void setRamLowSince(int vmId, double time) {
+        ramLowSince[vmId] = time;
+    }
+
+    public double getBwLowSince(int vmId) {
+        return bwLowSince[vmId];
+    }
+
+    public void setBwLowSince(int vmId, double time) {
+        bwLowSince[vmId] = time;
+    }
+
+    public int getScalingCount(int vmId) {
+        return scalingCount[vmId];
+    }
+
+    public void incrementScalingCount(int vmId) {
+        scalingCount[vmId]++;
+    }
+
+    public Map<Integer, Integer> originalPesView() {
+        return new ColumnView<Integer>() {
+            @Override
+            Integer value(int id) {
+                return originalPes[id];
+            }
+        };
+    }
+
+    public Map<Integer, Integer> scalingCountView() {
+        return new ColumnView<Integer>() {
+            @Override
+            Integer value(int id) {
+                return scalingCount[id];
+            }
+        };
+    }
+
+    public Map<Integer, Double> lastScalingTimeView() {
+        return new ColumnView<Double>() {
+            @Override
+            Double value(int id) {
+                return lastScalingTime[id];
+            }
+        };
+    }
+
+    /**
+     * Utilization of the currently allocated VMs, keyed by their current {@code Vm} object.
+     */
+    public Map<Vm, Double> utilizationView() {
+        return new AbstractMap<Vm, Double>() {
+            @Override
+            public Set<Entry<Vm, Double>> entrySet() {
+                return new AbstractSet<Entry<Vm, Double>>() {
+                    @Override
+                    public Iterator<Entry<Vm, Double>> iterator() {
+                        return new IdIterator<Entry<Vm, Double>>(allocated) {
+                            @Override
+                            Entry<Vm, Double> entry(int id) {
+                                return new SimpleImmutableEntry<>(vms[id], utilization[id]);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return count(allocated);
+                    }
+                };
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof Vm && get(key) != null;
+            }
+
+            @Override
+            public Double get(Object key) {
+                if (!(key instanceof Vm)) return null;
+                int id = ((Vm) key).getId();
+                return isAllocated(id) && vms[id].getUid().equals(((Vm) key).getUid()) ? utilization[id] : null;
+            }
+        };
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < vms.length) return;
+        int capacity = vms.length;
+        while (capacity <= id) {
+            capacity <<= 1;
+        }
+        vms = Arrays.copyOf(vms, capacity);
+        registered = Arrays.copyOf(registered, capacity);
+        allocated = Arrays.copyOf(allocated, capacity);
+        originalPes = Arrays.copyOf(originalPes, capacity);
+        originalRam = Arrays.copyOf(originalRam, capacity);
+        originalBw = Arrays.copyOf(originalBw, capacity);
+        scalingCount = Arrays.copyOf(scalingCount, capacity);
+        lastScalingTime = Arrays.copyOf(lastScalingTime, capacity);
+        utilization = Arrays.copyOf(utilization, capacity);
+        lowSince = Arrays.copyOf(lowSince, capacity);
+        ramUtilization = Arrays.copyOf(ramUtilization, capacity);
+        bwUtilization = Arrays.copyOf(bwUtilization, capacity);
+        ramLowSince = Arrays.copyOf(ramLowSince, capacity);
+        bwLowSince = Arrays.copyOf(bwLowSince, capacity);
+    }
+
+    private int count(boolean[] flags) {
+        int count = 0;
+        for (int id = 0; id <= maxId; id++) {
+            if (flags[id]) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Read-only map over one column, containing every VM id that was ever registered.
+     */
+    private abstract class ColumnView<V> extends AbstractMap<Integer, V> {
+        abstract V value(int id);
+
+        @Override
+        public Set<Entry<Integer, V>> entrySet() {
+            return new AbstractSet<Entry<Integer, V>>() {
+                @Override
+                public Iterator<Entry<Integer, V>> iterator() {
+                    return new IdIterator<Entry<Integer, V>>(registered) {
+                        @Override
+                        Entry<Integer, V> entry(int id) {
+                            return new SimpleImmutableEntry<>(id, value(id));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return count(registered);
+                }
+            };
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && contains((Integer) key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return containsKey(key) ? value((Integer) key) : null;
+        }
+
+        private boolean contains(int id) {
+            return id >= 0 && id <= maxId && registered[id];
+        }
+    }
+
+    private abstract class IdIterator<E> implements Iterator<E> {
+        private final boolean[] flags;
+        private int next;
+
+        IdIterator(boolean[] flags) {
+            this.flags = flags;
+            this.next = advance(0);
+        }
+
+        abstract E entry(int id);
+
+        @Override
+        public boolean hasNext() {
+            return next <= maxId;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int id = next;
+            next = advance(id + 1);
+            return entry(id);
+        }
+
+        private int advance(int from) {
+            while (from <= maxId && !flags[from]) {
+                from++;
+            }
+            return from;
+        }
+    }
+}
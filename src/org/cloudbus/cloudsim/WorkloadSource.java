@@ -0,0 +1,24 @@
+package org.cloudbus.cloudsim;
+
+import java.io.Closeable;
+
+/**
+ * A workload that releases cloudlets lazily in arrival-time order. The broker pulls one
+ * cloudlet at a time when its arrival time is reached, so only the next arrival and the
+ * cloudlets currently in flight need to be on the heap.
+ */
+public interface WorkloadSource extends Closeable {
+
+    /**
+     * Arrival time of the next cloudlet, or {@code Double.MAX_VALUE} once the workload is exhausted.
+     */
+    double nextArrivalTime();
+
+    /**
+     * Returns the cloudlet arriving at {@link #nextArrivalTime()} and moves on to the next one.
+     */
+    Cloudlet next();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,295 @@
+package org.cloudbus.cloudsim.core;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Calendar queue (R. Brown, 1988) of simulation events. Time is cut into slots of one bucket
+ * width and slot {@code s} lives in bucket {@code s mod buckets}, each bucket a list sorted in
+ * event order. The next event is found by walking the buckets from the slot of the previous
+ * one, so scheduling and taking the next event cost O(1) amortized while the bucket count and
+ * width follow the queue's size and event spacing.
+ *
+ * Events are ordered by time, then by serial, then by insertion, which is the order
+ * {@code TreeSet<SimEvent>} gives them in the stock queue. Iteration follows this order.
+ * List nodes are recycled, so a steady-state queue does not allocate.
+ */
+final class CalendarQueue extends AbstractCollection<SimEvent> {
+    private static final int MIN_BUCKETS = 16;
+    private static final int WIDTH_SAMPLE = 25; // Leading events sampled to choose a bucket width
+
+    private static final class Node {
+        SimEvent event;
+        double time;
+        long serial;
+        long order; // Insertion number, breaks ties between equal serials
+        long slot;  // floor(time / width)
+        Node prev;
+        Node next;
+    }
+
+    private Node[] heads = new Node[MIN_BUCKETS];
+    private Node[] tails = new Node[MIN_BUCKETS];
+    private double width = 1.0;
+    private long minSlot; // No event is in an earlier slot; the search for the first event starts here
+    private int size;
+    private long insertions;
+    private Node free;    // Recycled nodes, linked through next
+
+    /**
+     * Adds an event with the serial the caller assigned to it.
+     */
+    void add(SimEvent event, long serial) {
+        Node node = free;
+        if (node != null) {
+            free = node.next;
+        } else {
+            node = new Node();
+        }
+        node.event = event;
+        node.time = event.eventTime();
+        node.serial = serial;
+        node.order = insertions++;
+        node.slot = slot(node.time);
+        if (size == 0 || node.slot < minSlot) {
+            minSlot = node.slot;
+        }
+        insert(node);
+        size++;
+
+        if (size > 2 * heads.length) {
+            resize(heads.length * 2);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<SimEvent> iterator() {
+        return new OrderedIterator();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof SimEvent)) return false;
+        SimEvent event = (SimEvent) o;
+        for (Node node = heads[index(slot(event.eventTime()))]; node != null; node = node.next) {
+            if (node.event == event) {
+                unlink(node);
+                recycle(node);
+                shrinkIfSparse();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> events) {
+        boolean changed = false;
+        for (Object event : events) {
+            changed |= remove(event);
+        }
+        return changed;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heads, null);
+        Arrays.fill(tails, null);
+        size = 0;
+    }
+
+    private long slot(double time) {
+        return (long) Math.floor(time / width);
+    }
+
+    private int index(long slot) {
+        return (int) (slot & (heads.length - 1));
+    }
+
+    private static boolean before(Node a, Node b) {
+        if (a.time != b.time) return a.time < b.time;
+        if (a.serial != b.serial) return a.serial < b.serial;
+        return a.order < b.order;
+    }
+
+    /**
+     * Links a node into its bucket. Scans from the tail, as new events mostly go last.
+     */
+    private void insert(Node node) {
+        int bucket = index(node.slot);
+        Node prev = tails[bucket];
+        while (prev != null && before(node, prev)) {
+            prev = prev.prev;
+        }
+        Node next = prev != null ? prev.next : heads[bucket];
+        node.prev = prev;
+        node.next = next;
+        if (prev != null) prev.next = node; else heads[bucket] = node;
+        if (next != null) next.prev = node; else tails[bucket] = node;
+    }
+
+    private void unlink(Node node) {
+        int bucket = index(node.slot);
+        if (node.prev != null) node.prev.next = node.next; else heads[bucket] = node.next;
+        if (node.next != null) node.next.prev = node.prev; else tails[bucket] = node.prev;
+        size--;
+    }
+
+    private void recycle(Node node) {
+        node.event = null;
+        node.prev = null;
+        node.next = free;
+        free = node;
+    }
+
+    /**
+     * Earliest event: the head of the first non-empty slot at or after {@link #minSlot}.
+     * Falls back to comparing all bucket heads if none is found within one year of slots.
+     */
+    private Node first() {
+        if (size == 0) return null;
+        long slot = minSlot;
+        for (int i = 0; i < heads.length; i++, slot++) {
+            Node head = heads[index(slot)];
+            if (head != null && head.slot == slot) {
+                minSlot = slot;
+                return head;
+            }
+        }
+        Node first = null;
+        for (Node head : heads) {
+            if (head != null && (first == null || before(head, first))) {
+                first = head;
+            }
+        }
+        minSlot = first.slot;
+        return first;
+    }
+
+    /**
+     * Shrinks the calendar once the queue has emptied out. Not called while iterating,
+     * so that an iterator's removals never move nodes between buckets.
+     */
+    private void shrinkIfSparse() {
+        if (heads.length > MIN_BUCKETS && size < heads.length / 2) {
+            resize(heads.length / 2);
+        }
+    }
+
+    /**
+     * Redistributes the events over {@code buckets} buckets, with a width of three times the
+     * average gap between the earliest distinct event times, ignoring gaps over twice the mean.
+     */
+    private void resize(int buckets) {
+        double[] times = new double[WIDTH_SAMPLE];
+        int sampled = 0;
+        OrderedIterator events = new OrderedIterator();
+        while (events.hasNext() && sampled < WIDTH_SAMPLE) {
+            double time = events.nextNode().time;
+            if (sampled == 0 || time != times[sampled - 1]) {
+                times[sampled++] = time;
+            }
+        }
+        if (sampled > 1) {
+            double mean = (times[sampled - 1] - times[0]) / (sampled - 1);
+            double total = 0;
+            int gaps = 0;
+            for (int i = 1; i < sampled; i++) {
+                double gap = times[i] - times[i - 1];
+                if (gap <= 2 * mean) {
+                    total += gap;
+                    gaps++;
+                }
+            }
+            width = 3 * total / gaps;
+        }
+
+        Node[] oldHeads = heads;
+        heads = new Node[buckets];
+        tails = new Node[buckets];
+        minSlot = Long.MAX_VALUE;
+        for (Node head : oldHeads) {
+            Node node = head;
+            while (node != null) {
+                Node next = node.next;
+                node.slot = slot(node.time);
+                minSlot = Math.min(minSlot, node.slot);
+                insert(node);
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * Walks the events in order. The successor of an event is the next node of its bucket if
+     * that is in the same slot, otherwise the head of the next occupied slot. Should a year of
+     * slots go by without one, the successor is searched for in every bucket.
+     */
+    private final class OrderedIterator implements Iterator<SimEvent> {
+        private Node next = first();
+        private Node last;
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public SimEvent next() {
+            return nextNode().event;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            unlink(last);
+            recycle(last);
+            last = null;
+        }
+
+        private Node nextNode() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = successor(last);
+            return last;
+        }
+
+        private Node successor(Node node) {
+            if (node.next != null && node.next.slot == node.slot) {
+                return node.next;
+            }
+            long slot = node.slot + 1;
+            for (int i = 1; i < heads.length; i++, slot++) {
+                // Nodes of earlier slots in this bucket come first and were already returned
+                for (Node candidate = heads[index(slot)]; candidate != null; candidate = candidate.next) {
+                    if (candidate.slot == slot) return candidate;
+                    if (candidate.slot > slot) break;
+                }
+            }
+
+            Node successor = null;
+            for (Node head : heads) {
+                Node candidate = head;
+                while (candidate != null && !before(node, candidate)) {
+                    candidate = candidate.next;
+                }
+                if (candidate != null && (successor == null || before(candidate, successor))) {
+                    successor = candidate;
+                }
+            }
+            return successor;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Randomized check that {@link CalendarQueue} keeps the event order of the stock
+ * {@code TreeSet<SimEvent>} queue, which CloudSim's cancel and clock-tick code rely on.
+ *
+ * Each seed drives both queues through the same random mix of the operations CloudSim
+ * performs: batches of sends at the current time, shortly after it or far ahead, some with
+ * serial 0 as {@code addEventFirst} gives them; clock ticks that take the first event and
+ * every other event at its time; {@code cancel} of the first event with a tag; and
+ * {@code cancelAll} of a tag. Event spacing varies by seed so the calendar queue resizes and
+ * re-picks its bucket width. After every step both queues must hold the same number of
+ * events, and periodically they must iterate the same events in the same order.
+ *
+ * Events with serial 0 get times no other such event has: {@code SimEvent.compareTo} never
+ * returns 0 for two distinct events, so the TreeSet cannot always find one of two events with
+ * the same time and serial to remove it, and the stock order is undefined there.
+ *
+ * Usage: {@code CalendarQueueCheck [seeds]}, 300 by default. Exits with status 1 on the first
+ * divergence, naming the seed and step.
+ */
+public final class CalendarQueueCheck {
+    private static final int TAGS = 5;
+
+    private CalendarQueueCheck() {
+    }
+
+    public static void main(String[] args) {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        for (long seed = 0; seed < seeds; seed++) {
+            String failure = check(seed);
+            if (failure != null) {
+                System.err.println("CalendarQueue diverged from TreeSet: seed " + seed + ", " + failure);
+                System.exit(1);
+            }
+        }
+        System.out.println("CalendarQueue matched TreeSet over " + seeds + " seeds");
+    }
+
+    /**
+     * Runs one seed, returning a description of the first divergence or null if none.
+     */
+    static String check(long seed) {
+        Random random = new Random(seed);
+        CalendarQueue calendar = new CalendarQueue();
+        TreeSet<SimEvent> tree = new TreeSet<>();
+        double spacing = seed % 3 == 0 ? 0.001 : 5; // Dense events exercise the bucket-width choice
+        long serial = 0;
+        double clock = 0;
+
+        int steps = 2000 + random.nextInt(8000);
+        for (int step = 0; step < steps; step++) {
+            int operation = random.nextInt(100);
+            if (operation < 50 || tree.isEmpty()) {
+                int events = 1 + random.nextInt(random.nextInt(10) == 0 ? 400 : 5);
+                for (int i = 0; i < events; i++) {
+                    boolean first = random.nextInt(200) == 0;
+                    double time = clock + (first ? random.nextDouble() * spacing : delay(random, spacing));
+                    SimEvent event = new SimEvent(SimEvent.SEND, time, 0, 0, random.nextInt(TAGS), null);
+                    long eventSerial = first ? 0 : serial++;
+                    event.setSerial(eventSerial);
+                    tree.add(event);
+                    calendar.add(event, eventSerial);
+                }
+            } else if (operation < 85) {
+                // A clock tick: the first event and all others at its time
+                SimEvent first = tree.first();
+                if (calendar.iterator().next() != first) return "step " + step + ": different first event";
+                clock = first.eventTime();
+                tree.remove(first);
+                calendar.remove(first);
+                List<SimEvent> batch = new ArrayList<>();
+                Iterator<SimEvent> expected = tree.iterator();
+                for (SimEvent event : calendar) {
+                    if (event != expected.next()) return "step " + step + ": different batch";
+                    if (event.eventTime() != first.eventTime()) break;
+                    batch.add(event);
+                }
+                tree.removeAll(batch);
+                calendar.removeAll(batch);
+            } else if (operation < 92) {
+                int tag = random.nextInt(TAGS);
+                removeTagged(tree.iterator(), tag, false);
+                removeTagged(calendar.iterator(), tag, false);
+            } else {
+                int tag = random.nextInt(TAGS);
+                removeTagged(tree.iterator(), tag, true);
+                removeTagged(calendar.iterator(), tag, true);
+            }
+
+            if (calendar.size() != tree.size()) {
+                return "step " + step + ": size " + calendar.size() + " instead of " + tree.size();
+            }
+            if (step % 7 == 0) {
+                Iterator<SimEvent> actual = calendar.iterator();
+                for (SimEvent event : tree) {
+                    if (!actual.hasNext() || actual.next() != event) return "step " + step + ": different order";
+                }
+                if (actual.hasNext()) return "step " + step + ": extra events";
+            }
+        }
+        return null;
+    }
+
+    private static double delay(Random random, double spacing) {
+        if (random.nextInt(4) == 0) return 0;
+        if (random.nextInt(20) == 0) return random.nextDouble() * 1000;
+        if (random.nextInt(3) == 0) return 1.0;
+        return random.nextDouble() * spacing;
+    }
+
+    private static void removeTagged(Iterator<SimEvent> events, int tag, boolean all) {
+        while (events.hasNext()) {
+            if (events.next().getTag() == tag) {
+                events.remove();
+                if (!all) return;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.cloudbus.cloudsim.core;
+
+import org.cloudbus.cloudsim.Constants;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * Future event queue of the simulation engine. This class replaces the TreeSet-based queue of
+ * the same name in cloudsim-3.0.3.jar, so the project's classes must come before the jar on the
+ * classpath. {@link Constants#EVENT_QUEUE} picks the implementation: a {@link CalendarQueue},
+ * or the stock TreeSet to check results against. Both keep the stock event order, so runs with
+ * either produce the same results.
+ */
+public class FutureQueue {
+    private final CalendarQueue calendar;     // null when the TreeSet is used
+    private final Collection<SimEvent> events;
+    private long serial = 0;
+
+    public FutureQueue() {
+        if (Constants.EVENT_QUEUE.equalsIgnoreCase("tree")) {
+            calendar = null;
+            events = new TreeSet<>();
+        } else if (Constants.EVENT_QUEUE.equalsIgnoreCase("calendar")) {
+            calendar = new CalendarQueue();
+            events = calendar;
+        } else {
+            throw new IllegalArgumentException("Unknown event queue: " + Constants.EVENT_QUEUE);
+        }
+    }
+
+    /**
+     * Adds an event, after the events already queued for the same time.
+     */
+    public void addEvent(SimEvent newEvent) {
+        add(newEvent, serial++);
+    }
+
+    /**
+     * Adds an event ahead of the events already queued for the same time.
+     */
+    public void addEventFirst(SimEvent newEvent) {
+        add(newEvent, 0);
+    }
+
+    private void add(SimEvent event, long eventSerial) {
+        event.setSerial(eventSerial);
+        if (calendar != null) {
+            calendar.add(event, eventSerial);
+        } else {
+            events.add(event);
+        }
+    }
+
+    /**
+     * Iterates over the queued events in the order they will be processed.
+     */
+    public Iterator<SimEvent> iterator() {
+        return events.iterator();
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    public boolean remove(SimEvent event) {
+        return events.remove(event);
+    }
+
+    public boolean removeAll(Collection<SimEvent> events) {
+        return this.events.removeAll(events);
+    }
+
+    public void clear() {
+        events.clear();
+    }
+}
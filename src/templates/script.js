@@ -267,6 +267,369 @@ function createScalingTimelineChart(data) {
     });
 }
 
+// Function to create latency percentile chart
+function createLatencyChart(data) {
+    if (!data.LATENCY_PERCENTILES || !data.LATENCY_PERCENTILES.data.length) return;
+    
+    const ctx = document.getElementById('latency-chart').getContext('2d');
+    const percentiles = ['P50', 'P95', 'P99', 'P99_9'];
+    
+    const datasets = data.LATENCY_PERCENTILES.data.map((row, index) => ({
+        label: `${row.Metric} Time`,
+        data: percentiles.map(p => parseFloat(row[p])),
+        backgroundColor: chartColors[index % chartColors.length],
+        borderColor: chartColors[index % chartColors.length].replace('0.8', '1'),
+        borderWidth: 1
+    }));
+    
+    new Chart(ctx, {
+        type: 'bar',
+        data: {
+            labels: percentiles.map(p => p.replace('_', '.')),
+            datasets: datasets
+        },
+        options: {
+            responsive: true,
+            maintainAspectRatio: false,
+            plugins: {
+                title: {
+                    display: true,
+                    text: 'Cloudlet Wait and Response Time Percentiles'
+                },
+                legend: {
+                    position: 'top',
+                }
+            },
+            scales: {
+                y: {
+                    beginAtZero: true,
+                    title: {
+                        display: true,
+                        text: 'Seconds'
+                    }
+                }
+            }
+        }
+    });
+}
+
+// Function to create the heap and simulated/wall time chart of a profiled run
+function createProfileChart(data) {
+    if (!data.PROFILE_SAMPLES || !data.PROFILE_SAMPLES.data.length) return;
+    
+    const ctx = document.getElementById('profile-chart').getContext('2d');
+    const samples = data.PROFILE_SAMPLES.data;
+    
+    new Chart(ctx, {
+        type: 'line',
+        data: {
+            datasets: [
+                {
+                    label: 'Heap Used (MB)',
+                    data: samples.map(row => ({ x: parseFloat(row.Time), y: parseFloat(row.Heap_Used_MB) })),
+                    borderColor: chartColors[0].replace('0.8', '1'),
+                    backgroundColor: chartColors[0],
+                    yAxisID: 'heap'
+                },
+                {
+                    label: 'Simulated / Wall Time',
+                    data: samples.map(row => ({ x: parseFloat(row.Time), y: parseFloat(row.Sim_Wall_Ratio) })),
+                    borderColor: chartColors[2].replace('0.8', '1'),
+                    backgroundColor: chartColors[2],
+                    yAxisID: 'ratio'
+                }
+            ]
+        },
+        options: {
+            responsive: true,
+            maintainAspectRatio: false,
+            plugins: {
+                legend: {
+                    position: 'top',
+                }
+            },
+            scales: {
+                x: {
+                    type: 'linear',
+                    title: {
+                        display: true,
+                        text: 'Simulation Time (s)'
+                    }
+                },
+                heap: {
+                    position: 'left',
+                    beginAtZero: true,
+                    title: {
+                        display: true,
+                        text: 'MB'
+                    }
+                },
+                ratio: {
+                    position: 'right',
+                    beginAtZero: true,
+                    grid: {
+                        drawOnChartArea: false
+                    },
+                    title: {
+                        display: true,
+                        text: 'Simulated s per wall s'
+                    }
+                }
+            }
+        }
+    });
+}
+
+// Per-tick time series streamed from timeseries.bin: a header with the column names, then
+// chunks of rows, each holding its float64 times followed by one float32 block per column
+const TIME_SERIES_FILE = 'timeseries.bin';
+const TIME_SERIES_POINTS = 1000;        // Points drawn after downsampling
+const TIME_SERIES_REDRAW_INTERVAL = 200; // Milliseconds between redraws while the file streams in
+const LITTLE_ENDIAN = new Uint8Array(new Uint16Array([1]).buffer)[0] === 1;
+let timeSeries = null;
+let timeSeriesChart = null;
+let timeSeriesRenderPending = false;
+let timeSeriesLastRender = 0;
+
+// Largest-Triangle-Three-Buckets downsampling: keeps the first and last points and, from each
+// bucket in between, the point forming the largest triangle with the previous kept point and
+// the next bucket's average, which preserves peaks that plain averaging would flatten
+function lttb(xs, ys, length, threshold) {
+    if (length <= threshold || threshold < 3) {
+        const points = new Array(length);
+        for (let i = 0; i < length; i++) {
+            points[i] = { x: xs[i], y: ys[i] };
+        }
+        return points;
+    }
+    const points = [{ x: xs[0], y: ys[0] }];
+    const bucketSize = (length - 2) / (threshold - 2);
+    let a = 0;
+    for (let bucket = 0; bucket < threshold - 2; bucket++) {
+        // Average of the next bucket
+        const nextStart = Math.floor((bucket + 1) * bucketSize) + 1;
+        const nextEnd = Math.min(Math.floor((bucket + 2) * bucketSize) + 1, length);
+        let avgX = 0, avgY = 0, count = 0;
+        for (let i = nextStart; i < nextEnd; i++) {
+            if (Number.isNaN(ys[i])) continue;
+            avgX += xs[i];
+            avgY += ys[i];
+            count++;
+        }
+        if (count > 0) {
+            avgX /= count;
+            avgY /= count;
+        } else {
+            avgX = xs[nextEnd - 1];
+            avgY = 0;
+        }
+        
+        const start = Math.floor(bucket * bucketSize) + 1;
+        const end = Math.floor((bucket + 1) * bucketSize) + 1;
+        let maxArea = -1;
+        let chosen = start;
+        for (let i = start; i < end; i++) {
+            const area = Math.abs((xs[a] - avgX) * (ys[i] - ys[a]) - (xs[a] - xs[i]) * (avgY - ys[a]));
+            if (area > maxArea) {
+                maxArea = area;
+                chosen = i;
+            }
+        }
+        points.push({ x: xs[chosen], y: ys[chosen] });
+        a = chosen;
+    }
+    points.push({ x: xs[length - 1], y: ys[length - 1] });
+    return points;
+}
+
+// Parses the header, or returns null until all of it has arrived
+function parseTimeSeriesHeader(view) {
+    if (view.byteLength < 12) return null;
+    const magic = String.fromCharCode(view.getUint8(0), view.getUint8(1), view.getUint8(2), view.getUint8(3));
+    if (magic !== 'CSTS') {
+        throw new Error('Not a time-series file');
+    }
+    const columns = view.getInt32(8, true);
+    const names = [];
+    let offset = 12;
+    for (let c = 0; c < columns; c++) {
+        if (offset + 2 > view.byteLength) return null;
+        const length = view.getUint16(offset, true);
+        if (offset + 2 + length > view.byteLength) return null;
+        names.push(new TextDecoder('ascii').decode(new Uint8Array(view.buffer, view.byteOffset + offset + 2, length)));
+        offset += 2 + length;
+    }
+    return { names, headerLength: offset };
+}
+
+// Copies a block of little-endian values into a typed array; on a little-endian machine the
+// bytes are copied into an aligned buffer and viewed in place
+function readBlock(bytes, offset, target, at, rows, size) {
+    if (LITTLE_ENDIAN) {
+        const block = bytes.slice(offset, offset + rows * size).buffer;
+        target.set(size === 8 ? new Float64Array(block) : new Float32Array(block), at);
+        return;
+    }
+    const view = new DataView(bytes.buffer, bytes.byteOffset + offset, rows * size);
+    for (let r = 0; r < rows; r++) {
+        target[at + r] = size === 8 ? view.getFloat64(r * 8, true) : view.getFloat32(r * 4, true);
+    }
+}
+
+// Appends every complete chunk in the bytes and returns the number consumed
+function parseTimeSeriesChunks(bytes, series) {
+    const view = new DataView(bytes.buffer, bytes.byteOffset, bytes.byteLength);
+    const columns = series.names.length;
+    let offset = 0;
+    while (offset + 4 <= view.byteLength) {
+        const rows = view.getInt32(offset, true);
+        const chunkLength = 4 + rows * (8 + 4 * columns);
+        if (offset + chunkLength > view.byteLength) break;
+        
+        if (series.length + rows > series.times.length) {
+            const capacity = Math.max(series.length + rows, series.times.length * 2);
+            const times = new Float64Array(capacity);
+            times.set(series.times.subarray(0, series.length));
+            series.times = times;
+            series.values = series.values.map(column => {
+                const grown = new Float32Array(capacity);
+                grown.set(column.subarray(0, series.length));
+                return grown;
+            });
+        }
+        let position = offset + 4;
+        readBlock(bytes, position, series.times, series.length, rows, 8);
+        position += rows * 8;
+        for (let c = 0; c < columns; c++) {
+            readBlock(bytes, position, series.values[c], series.length, rows, 4);
+            position += rows * 4;
+        }
+        series.length += rows;
+        offset += chunkLength;
+    }
+    return offset;
+}
+
+// Redraws the selected column on the next animation frame, at most every
+// TIME_SERIES_REDRAW_INTERVAL while streaming so that parsing is not starved
+function scheduleTimeSeriesRender(final) {
+    if (timeSeriesRenderPending) return;
+    if (!final && performance.now() - timeSeriesLastRender < TIME_SERIES_REDRAW_INTERVAL) return;
+    timeSeriesRenderPending = true;
+    requestAnimationFrame(() => {
+        timeSeriesRenderPending = false;
+        timeSeriesLastRender = performance.now();
+        renderTimeSeries();
+    });
+}
+
+function renderTimeSeries() {
+    if (!timeSeries || !timeSeries.length) return;
+    const select = document.getElementById('time-series-column');
+    const column = Math.max(0, select.selectedIndex);
+    const points = lttb(timeSeries.times, timeSeries.values[column], timeSeries.length, TIME_SERIES_POINTS);
+    document.getElementById('time-series-status').textContent =
+        `${timeSeries.length.toLocaleString()} ticks, ${points.length.toLocaleString()} drawn`;
+    
+    if (timeSeriesChart) {
+        timeSeriesChart.data.datasets[0].label = timeSeries.names[column];
+        timeSeriesChart.data.datasets[0].data = points;
+        timeSeriesChart.update('none');
+        return;
+    }
+    const ctx = document.getElementById('time-series-chart').getContext('2d');
+    timeSeriesChart = new Chart(ctx, {
+        type: 'line',
+        data: {
+            datasets: [{
+                label: timeSeries.names[column],
+                data: points,
+                borderColor: chartColors[0].replace('0.8', '1'),
+                borderWidth: 1,
+                pointRadius: 0,
+                spanGaps: false
+            }]
+        },
+        options: {
+            responsive: true,
+            maintainAspectRatio: false,
+            animation: false,
+            parsing: false,
+            normalized: true,
+            plugins: {
+                legend: {
+                    position: 'top',
+                }
+            },
+            scales: {
+                x: {
+                    type: 'linear',
+                    title: {
+                        display: true,
+                        text: 'Simulation Time (s)'
+                    }
+                }
+            }
+        }
+    });
+}
+
+// Streams the time series, redrawing as chunks arrive. The file is optional.
+async function loadTimeSeries() {
+    let response;
+    try {
+        response = await fetch(TIME_SERIES_FILE);
+    } catch (error) {
+        response = null;
+    }
+    const status = document.getElementById('time-series-status');
+    if (!response || !response.ok || !response.body) {
+        status.textContent = 'No time series recorded for this run';
+        return;
+    }
+    
+    const reader = response.body.getReader();
+    let pending = new Uint8Array(0);
+    try {
+        while (true) {
+            const { done, value } = await reader.read();
+            if (value) {
+                const joined = new Uint8Array(pending.length + value.length);
+                joined.set(pending);
+                joined.set(value, pending.length);
+                pending = joined;
+            }
+            
+            if (!timeSeries) {
+                const header = parseTimeSeriesHeader(new DataView(pending.buffer, pending.byteOffset, pending.byteLength));
+                if (header) {
+                    timeSeries = {
+                        names: header.names,
+                        times: new Float64Array(4096),
+                        values: header.names.map(() => new Float32Array(4096)),
+                        length: 0
+                    };
+                    const select = document.getElementById('time-series-column');
+                    header.names.forEach(name => select.add(new Option(name.replace(/_/g, ' '))));
+                    select.addEventListener('change', renderTimeSeries);
+                    pending = pending.subarray(header.headerLength);
+                }
+            }
+            if (timeSeries) {
+                const consumed = parseTimeSeriesChunks(pending, timeSeries);
+                if (consumed > 0) {
+                    pending = pending.slice(consumed);
+                }
+                scheduleTimeSeriesRender(done);
+            }
+            if (done) break;
+        }
+    } catch (error) {
+        console.error('Error reading time series:', error);
+        status.textContent = `Error reading time series: ${error.message}`;
+    }
+}
+
 // Main function to load and display data
 async function loadData() {
     simulationData = await fetchCsvData();
@@ -283,6 +646,8 @@ async function loadData() {
         // Create charts
         createUtilizationChart(simulationData);
         createScalingTimelineChart(simulationData);
+        createLatencyChart(simulationData);
+        loadTimeSeries();
         
         // VM execution details
         if (simulationData.VM_EXECUTION_DETAILS) {
@@ -311,6 +676,53 @@ async function loadData() {
             ));
         }
         
+        // Consolidation summary
+        if (simulationData.CONSOLIDATION_SUMMARY) {
+            const consolidationDiv = document.getElementById('consolidation');
+            consolidationDiv.appendChild(createTable(
+                simulationData.CONSOLIDATION_SUMMARY.headers,
+                simulationData.CONSOLIDATION_SUMMARY.data
+            ));
+        }
+        
+        // Energy of the active hosts
+        if (simulationData.ENERGY_SUMMARY) {
+            const energyDiv = document.getElementById('energy');
+            energyDiv.appendChild(createTable(
+                simulationData.ENERGY_SUMMARY.headers,
+                simulationData.ENERGY_SUMMARY.data
+            ));
+        }
+        
+        // Arrivals and queueing delay
+        if (simulationData.ARRIVAL_SUMMARY) {
+            const arrivalsDiv = document.getElementById('arrivals');
+            arrivalsDiv.appendChild(createTable(
+                simulationData.ARRIVAL_SUMMARY.headers,
+                simulationData.ARRIVAL_SUMMARY.data
+            ));
+        }
+        
+        // Per-VM latency percentiles
+        if (simulationData.VM_LATENCY_PERCENTILES) {
+            const latencyDiv = document.getElementById('vm-latency');
+            latencyDiv.appendChild(createTable(
+                simulationData.VM_LATENCY_PERCENTILES.headers,
+                simulationData.VM_LATENCY_PERCENTILES.data
+            ));
+        }
+        
+        // Wall-clock profile, present when the run was profiled
+        if (simulationData.SIMULATION_PROFILE) {
+            document.getElementById('profile-row').style.display = '';
+            const profileDiv = document.getElementById('simulation-profile');
+            profileDiv.appendChild(createTable(
+                simulationData.SIMULATION_PROFILE.headers,
+                simulationData.SIMULATION_PROFILE.data
+            ));
+            createProfileChart(simulationData);
+        }
+        
         // Current VM utilization
         if (simulationData.CURRENT_VM_UTILIZATION) {
             const utilizationDiv = document.getElementById('vm-utilization');